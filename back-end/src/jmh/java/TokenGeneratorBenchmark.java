@@ -0,0 +1,48 @@
+package jmh.java;
+
+import main.java.com.projectBackEnd.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many tokens per second the TokenGenerator produces, for session and reset link tokens (50 characters)
+ * and image names (8 characters), on one thread and on several threads at once.
+ * Run with : gradle jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenGeneratorBenchmark {
+
+    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz";
+    private static final String IMAGE_LEXICON = "ABCDEFGHIJKLMNOPQRSTUVWXYZ12345674890";
+
+    @Benchmark
+    public String sessionToken() {
+        return TokenGenerator.generateToken(50, ALPHANUMERIC);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String sessionTokenContended() {
+        return TokenGenerator.generateToken(50, ALPHANUMERIC);
+    }
+
+    @Benchmark
+    public String imageName() {
+        return TokenGenerator.generateToken(8, IMAGE_LEXICON);
+    }
+}
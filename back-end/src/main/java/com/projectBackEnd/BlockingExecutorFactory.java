@@ -0,0 +1,32 @@
+package main.java.com.projectBackEnd;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Provides the executor on which the controllers run their requests (see @ExecuteOn), so that blocking Hibernate
+ * and file system calls do not hold up the few Netty event loop threads.
+ * Its size is read from the 'blocking.pool-size' configuration.
+ */
+@Factory
+public class BlockingExecutorFactory {
+
+    public static final String BLOCKING = "blocking";
+
+
+    /**
+     * Create the executor for blocking work
+     * @param poolSize  Number of threads in the pool
+     * @return The instrumented executor, shut down when the application stops
+     */
+    @Singleton
+    @Named(BLOCKING)
+    @Bean(preDestroy = "shutdown")
+    public InstrumentedExecutor blockingExecutor(@Value("${blocking.pool-size:16}") int poolSize) {
+        return new InstrumentedExecutor(poolSize, BLOCKING);
+    }
+}
@@ -4,10 +4,12 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
+import javax.persistence.PersistenceException;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.Function;
 
 /**
 * EntityManager is the super class of managers, all responsible for database queries for their respective
@@ -35,6 +37,33 @@ public abstract class EntityManager <T extends TableEntity> {
     }
 
 
+    /**
+     * Open a session and run the given work on it inside a single transaction.
+     * This allows managers to issue their own queries while the session handling stays in one place.
+     * @param work      Queries to run on the open session
+     * @param fallback  Value returned if the work could not be completed
+     * @param <R>       Type of the result produced by the work
+     * @return result of the work, or fallback if it failed and everything it did was rolled back
+     */
+    protected static <R> R runTransaction(Function<Session, R> work, R fallback) {
+
+        SessionFactory sf = HibernateUtility.getSessionFactory();
+        Session session = sf.openSession();
+        try {
+            session.beginTransaction();
+            R result = work.apply(session);
+            session.getTransaction().commit();
+            return result;
+        } catch(PersistenceException ex) { //Also covers HibernateException, and failures converted on commit
+            if (session.getTransaction() != null) session.getTransaction().rollback();
+            return fallback;
+        } finally {
+            session.close();
+        }
+
+    }
+
+
     /**
      * Open the session and insert a new object into the subclass entity table
      * @param newObject Entity object to be inserted
@@ -0,0 +1,110 @@
+package main.java.com.projectBackEnd;
+
+import javax.persistence.Entity;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * EntityScanner finds every class annotated with @Entity in a package (and its sub-packages) on the class path,
+ * whether the classes are compiled into directories or packaged in a jar.
+ */
+class EntityScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Find all the entity classes within the given package
+     * @param packageName   Name of the package to scan, e.g. main.java.com.projectBackEnd.Services
+     * @return The set of entity classes found
+     */
+    static HashSet<Class> scan(String packageName) {
+
+        HashSet<Class> entities = new HashSet<>();
+        String path = packageName.replace('.', '/');
+        ClassLoader loader = EntityScanner.class.getClassLoader();
+        try {
+            Enumeration<URL> resources = loader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                if ("jar".equals(resource.getProtocol())) scanJar(resource, path, loader, entities);
+                else if ("file".equals(resource.getProtocol())) scanDirectory(Paths.get(resource.toURI()), packageName, loader, entities);
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Could not scan " + packageName + " for entities", e);
+        }
+        return entities;
+
+    }
+
+    /**
+     * Look for entity classes in a directory of compiled classes
+     * @param directory     Directory corresponding to the package
+     * @param packageName   Name of the package
+     * @param loader        Class loader used to load the classes found
+     * @param entities      Set the entity classes are added to
+     * @throws IOException If the directory cannot be walked
+     */
+    private static void scanDirectory(Path directory, String packageName, ClassLoader loader, Set<Class> entities)
+            throws IOException {
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(file -> file.toString().endsWith(CLASS_SUFFIX))
+                    .map(file -> directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "."))
+                    .forEach(relativeName -> addIfEntity(packageName + "." + relativeName, loader, entities));
+        }
+
+    }
+
+    /**
+     * Look for entity classes in the jar which contains the package
+     * @param resource  URL of the package inside the jar
+     * @param path      Path of the package inside the jar
+     * @param loader    Class loader used to load the classes found
+     * @param entities  Set the entity classes are added to
+     * @throws IOException If the jar cannot be read
+     */
+    private static void scanJar(URL resource, String path, ClassLoader loader, Set<Class> entities) throws IOException {
+
+        URLConnection connection = resource.openConnection();
+        connection.setUseCaches(false);
+        try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(path + "/") && name.endsWith(CLASS_SUFFIX)) addIfEntity(name.replace('/', '.'), loader, entities);
+            }
+        }
+
+    }
+
+    /**
+     * Load a class without initialising it and add it to the set if it is an entity
+     * @param fileName  Name of the class file, as a dotted path ending in .class
+     * @param loader    Class loader used to load the class
+     * @param entities  Set the class is added to if it is an entity
+     */
+    private static void addIfEntity(String fileName, ClassLoader loader, Set<Class> entities) {
+
+        String className = fileName.substring(0, fileName.length() - CLASS_SUFFIX.length());
+        if (className.contains("$")) return; //Nested and anonymous classes are never entities here
+        try {
+            Class<?> found = Class.forName(className, false, loader);
+            if (found.isAnnotationPresent(Entity.class)) entities.add(found);
+        } catch (ClassNotFoundException | LinkageError e) {
+            /*ignore - not loadable, so cannot be an entity*/
+        }
+
+    }
+}
@@ -0,0 +1,32 @@
+package main.java.com.projectBackEnd;
+
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.Map;
+
+/**
+ * Builds the session factory, with every entity table, as soon as the application has started rather than on the
+ * first request which needs the database. The time taken by each phase (scan, configure, build) is logged once the
+ * factory is built.
+ */
+@Singleton
+public class HibernateBootstrap implements ApplicationEventListener<StartupEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HibernateBootstrap.class);
+
+    /**
+     * Build the session factory once the application context, and so the pooled datasource, is ready
+     * @param event The startup event
+     */
+    @Override
+    public void onApplicationEvent(StartupEvent event) {
+        HibernateUtility.bootstrap();
+        Map<String, Long> timings = HibernateUtility.getBootTimings();
+        long total = timings.values().stream().mapToLong(Long::longValue).sum();
+        LOG.info("Hibernate session factory built in {} ms {}", total, timings);
+    }
+}
@@ -0,0 +1,31 @@
+package main.java.com.projectBackEnd;
+
+import io.micronaut.context.annotation.Context;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+/**
+ * Hands the pooled datasource declared in application.yml to the HibernateUtility when the server starts, so that
+ * the entity managers share that pool (and its size, idle timeout and leak detection settings) with the application.
+ * When the application stops, the HibernateUtility goes back to the connection settings of its config file.
+ */
+@Context
+public class HibernateDataSourceBinder {
+
+    /**
+     * Class constructor
+     * @param dataSource The default datasource of the application
+     */
+    public HibernateDataSourceBinder(DataSource dataSource) {
+        HibernateUtility.setDataSource(dataSource);
+    }
+
+    /**
+     * Stop sharing the datasource before it is closed with the application
+     */
+    @PreDestroy
+    void release() {
+        HibernateUtility.setDataSource(null);
+    }
+}
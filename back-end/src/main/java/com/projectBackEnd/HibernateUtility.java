@@ -1,20 +1,37 @@
 package main.java.com.projectBackEnd;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A Hibernate Utility to monitor session factories have correct table classes and ensure there are no connections leak.
  * This class is the connection point to the configuration xml for a database.
+ * Connections are drawn from a HikariCP pool : either the datasource shared by the running application,
+ * or one built from the 'hibernate.hikari' properties of the configuration xml.
+ * The entity classes are found by scanning the Services package once, so a single factory is built for all tables.
  * http://www.jcombat.com/hibernate/introduction-to-hibernateutil-and-the-sessionfactory-interface
  */
 public class HibernateUtility {
 
-    private static SessionFactory sessionFactory;
+    private static final String ENTITY_PACKAGE = "main.java.com.projectBackEnd.Services";
+
+    private static volatile SessionFactory sessionFactory;
     private static String resourceName="hibernate.cfg.xml";
     private static HashSet<Class> annotatedClasses;
+    private static DataSource dataSource;
+    private static volatile Map<String, Long> bootTimings = Collections.emptyMap();
 
     /**
      * Build a session factory using the annotated class list from which sessions can be
@@ -41,11 +58,43 @@ public class HibernateUtility {
      */
     private synchronized static SessionFactory createFactory(Configuration cfg) {
 
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        scanEntities();
+        timings.put("scan", elapsedMillis(start));
+
+        start = System.nanoTime();
         for(Class entityClass : annotatedClasses) cfg.addAnnotatedClass(entityClass);
-        sessionFactory = cfg.configure(resourceName).buildSessionFactory();
+        cfg.configure(resourceName);
+        if (dataSource != null) {
+            cfg.getProperties().remove(AvailableSettings.CONNECTION_PROVIDER);
+            cfg.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+        }
+        timings.put("configure", elapsedMillis(start));
+
+        start = System.nanoTime();
+        sessionFactory = cfg.buildSessionFactory();
+        timings.put("build", elapsedMillis(start));
+        bootTimings = Collections.unmodifiableMap(timings);
         return sessionFactory.isOpen() ? sessionFactory : createFactory(cfg);
 
     }
+
+    /**
+     * Find the entity classes of the Services package, if that has not been done yet
+     */
+    private synchronized static void scanEntities() {
+        if (annotatedClasses == null) annotatedClasses = EntityScanner.scan(ENTITY_PACKAGE);
+    }
+
+    /**
+     * Get the number of milliseconds elapsed since the given time
+     * @param start The start time, from System.nanoTime()
+     * @return The elapsed time in milliseconds
+     */
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
     
     /**
      * Set the location of the hibernate config file which contains database information
@@ -56,14 +105,50 @@ public class HibernateUtility {
     }
 
     /**
-     * Add another entity class to the factory and rebuild the factory for a new table.
+     * Set a pooled datasource from which sessions should draw their connections instead of the connection
+     * properties of the config file. The current factory is closed so that the next one uses the new datasource.
+     * @param pooledDataSource The datasource to use, or null to go back to the config file's own pool
+     */
+    public static synchronized void setDataSource(DataSource pooledDataSource) {
+        dataSource = pooledDataSource;
+        if (sessionFactory != null && sessionFactory.isOpen()) sessionFactory.close();
+    }
+
+    /**
+     * Get the statistics of the connection pool used by the session factory
+     * @return The pool statistics (active, idle, total and waiting connections), or null if the connections are not pooled
+     */
+    public static HikariPoolMXBean getPoolStats() {
+        ConnectionProvider provider = ((SessionFactoryImplementor) getSessionFactory()).getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(DataSource.class)) return null;
+        try {
+            DataSource source = provider.unwrap(DataSource.class);
+            if (!source.isWrapperFor(HikariDataSource.class)) return null;
+            return source.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the time taken by each phase (scan, configure and build) of the last session factory bootstrap
+     * @return The duration of each phase in milliseconds, in the order they ran
+     */
+    public static Map<String, Long> getBootTimings() {
+        return bootTimings;
+    }
+
+    /**
+     * Make sure an entity class is known to the factory. Entities of the Services package are found by the initial
+     * scan, so this does nothing for them; any other class is added and an open factory is rebuilt to include it.
      * @param tableEntity The class that will be added to the factory for table access
      */
-    public static void addAnnotation(Class tableEntity) {
-        if (annotatedClasses == null) annotatedClasses = new HashSet<>();
+    public static synchronized void addAnnotation(Class tableEntity) {
+        scanEntities();
         if (annotatedClasses.contains(tableEntity)) return;
         annotatedClasses.add(tableEntity);
-        getOpenSessionFactory();
+        if (sessionFactory != null && sessionFactory.isOpen()) getOpenSessionFactory();
     }
 
     /**
@@ -71,8 +156,19 @@ public class HibernateUtility {
      * @return The open session factory
      */
     static SessionFactory getSessionFactory() {
-        if (sessionFactory != null && !sessionFactory.isClosed() && sessionFactory.isOpen()) return sessionFactory;
-        else return getOpenSessionFactory();
+        SessionFactory factory = sessionFactory;
+        if (factory != null && !factory.isClosed() && factory.isOpen()) return factory;
+        else return bootstrap();
+    }
+
+    /**
+     * Build the session factory for every entity, unless an open one already exists. Called when the application
+     * starts so that the first request does not pay for it.
+     * @return The open session factory
+     */
+    public static synchronized SessionFactory bootstrap() {
+        if (sessionFactory != null && sessionFactory.isOpen()) return sessionFactory;
+        return getOpenSessionFactory();
     }
 
     /**
@@ -80,7 +176,7 @@ public class HibernateUtility {
      * fully close any outstanding connected threads.
      */
     public static void shutdown() {
-        getSessionFactory().close();
+        if (sessionFactory != null && sessionFactory.isOpen()) sessionFactory.close();
         try {
             Thread.sleep(500);
         } catch (InterruptedException e) {
@@ -0,0 +1,107 @@
+package main.java.com.projectBackEnd;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size thread pool which records how long its tasks wait in the queue before a thread picks them up.
+ * Used to run the blocking work of the controllers (database queries, file access) off the Netty event loop.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    // Metrics on the time tasks spend waiting for a thread
+    private final AtomicLong tasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+
+    /**
+     * Main constructor
+     * @param poolSize  Number of threads in the pool
+     * @param name      Prefix of the name of the threads
+     */
+    public InstrumentedExecutor(int poolSize, String name) {
+        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory(name));
+    }
+
+
+    /**
+     * Queue a task, remembering when it was submitted so that its wait can be measured when it starts
+     * @param task  Task to run
+     */
+    @Override
+    public void execute(Runnable task) {
+        long submitted = System.nanoTime();
+        super.execute(() -> {
+            recordWait(System.nanoTime() - submitted);
+            task.run();
+        });
+    }
+
+
+    /**
+     * Add the wait of a task which has just started to the metrics
+     * @param waitNanos Time the task spent in the queue (nanoseconds)
+     */
+    private void recordWait(long waitNanos) {
+        tasks.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+
+    /**
+     * Get the number of tasks waiting for a thread
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+
+    /**
+     * Get the number of tasks which have started running
+     * @return number of started tasks
+     */
+    public long getStartedTasks() {
+        return tasks.get();
+    }
+
+
+    /**
+     * Get the average time tasks waited for a thread
+     * @return average wait in milliseconds, 0 if no task has run yet
+     */
+    public double getAverageWaitMillis() {
+        long count = tasks.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (count * 1_000_000.0);
+    }
+
+
+    /**
+     * Get the longest time a task waited for a thread
+     * @return maximum wait in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+
+    /**
+     * Create the factory of the pool's threads
+     * @param name  Prefix of the name of the threads
+     * @return factory of numbered daemon threads
+     */
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -3,7 +3,9 @@ package main.java.com.projectBackEnd.Services.AppInfo;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 
@@ -12,6 +14,7 @@ import static main.java.com.projectBackEnd.URLLocation.location;
 /**
  * AppInfoController creating REST API endpoints for the frontend to connect to.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/appinfo")
 public class AppInfoController {
 
@@ -0,0 +1,57 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BoundedInputStream reads at most a given number of bytes from the stream it wraps.
+ * It is used to serve a single byte range of an image.
+ */
+class BoundedInputStream extends FilterInputStream {
+
+	private long remaining;
+
+	/**
+	 * Main constructor
+	 * @param in		Stream to read from, positioned at the start of the range
+	 * @param length	Number of bytes which may be read
+	 */
+	BoundedInputStream(InputStream in, long length) {
+		super(in);
+		remaining = length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (remaining <= 0) return -1;
+		int read = super.read();
+		if (read != -1) remaining--;
+		return read;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (remaining <= 0) return -1;
+		int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+		if (read > 0) remaining -= read;
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(Math.min(n, remaining));
+		remaining -= skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(super.available(), remaining);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
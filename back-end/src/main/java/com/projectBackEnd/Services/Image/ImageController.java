@@ -1,64 +1,126 @@
 package main.java.com.projectBackEnd.Services.Image;
 
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+import io.reactivex.Flowable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.Base64;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 
 import io.micronaut.http.MediaType;
 
-import io.micronaut.http.multipart.CompletedFileUpload;
+import io.micronaut.http.multipart.PartData;
+import io.micronaut.http.multipart.StreamingFileUpload;
+import io.micronaut.http.server.types.files.StreamedFile;
+import io.micronaut.http.server.types.files.SystemFile;
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 
-import javax.validation.constraints.Size;
-
 /**
  * Image Controller is a REST API endpoint.
  * It deals with the image related requests users might need : it provides HTTP requests for each of the queries
  * that carry out the adding, deletion and retrieval of different kinds of media from the server-side storage directories.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/images")
 public class ImageController {
 
+	private static final long CACHE_SECONDS = 31536000;	// Images may be cached for a year
+	private static final int UPLOAD_PREFETCH = 4;		// Parts of an upload received ahead of the disk writes
+
 	private final ImageManagerInterface imageManager;
+	private final ImageDerivatives derivatives;
 	protected final SessionManagerInterface sessionManager = SessionManager.getSessionManager();
 
-	/** Main constructor */
-	public ImageController(){imageManager = ImageManager.getImageManager();}
+	/**
+	 * Main constructor
+	 * @param derivatives	Cache of the resized images
+	 */
+	public ImageController(ImageDerivatives derivatives){
+		imageManager = ImageManager.getImageManager();
+		this.derivatives = derivatives;
+	}
 
 	/**
 	 * Add a new image to the server via an HTTP Post request
 	 * @param session	Current session
 	 * @param file		File to add to the server
+	 * @param request	The HTTP request, carrying the number of bytes reserved for the upload by the admission filter
 	 * @return HTTP response with relevant information resulting on the insertion of the file
 	 */
 	@Post(value = "/", consumes = MediaType.MULTIPART_FORM_DATA)
-	public HttpResponse<String> add(@Header("X-API-Key") String session, @Body CompletedFileUpload file) {
+	public HttpResponse<String> add(@Header("X-API-Key") String session, @Body StreamingFileUpload file,
+									HttpRequest<?> request) {
 
 		if(!sessionManager.verifySession(session)) return HttpResponse.unauthorized();
+		long reserved = request.getAttribute(UploadAdmissionFilter.RESERVED_BYTES, Long.class).orElse(Long.MAX_VALUE);
 		try {
-			return saveImage(file);
-		} catch (IOException e){
+			return saveImage(file, reserved);
+		} catch (IOException | UncheckedIOException e){
 			return HttpResponse.noContent();
 		}
 	}
 
 	/**
-	 * Save an image by passing its encodings to the imageManager
-	 * @param file	File to be encoded for saving
-	 * @return HTTP response based on success of the operation
+	 * Add a new image whose content is already stored on the server via an HTTP Post request, so that it does not
+	 * need to be uploaded again
+	 * @param session	Current session
+	 * @param checksum	SHA-256 checksum of the content, in hexadecimal
+	 * @param extension	File type of the image
+	 * @return HTTP response with relevant information resulting on the insertion of the file (not found if no
+	 * stored content has that checksum)
+	 */
+	@Post("/checksum/{checksum}")
+	public HttpResponse<String> addByChecksum(@Header("X-API-Key") String session, String checksum,
+											  @QueryValue String extension) {
+
+		if(!sessionManager.verifySession(session)) return HttpResponse.unauthorized();
+		String msg = imageManager.saveImageByChecksum(checksum, extension);
+		if (msg == null) return HttpResponse.notFound();
+		else return HttpResponse
+					.created(msg)
+					.headers(headers -> headers.location(location(msg)));
+	}
+
+	/**
+	 * Save an image by streaming its content to the imageManager as it is received : the parts of the upload are
+	 * only requested once the imageManager reads them, so the body is never buffered in memory or on disk first
+	 * @param file		File to be saved
+	 * @param reserved	Number of bytes the upload may stream
+	 * @return HTTP response based on success of the operation, 413 if the upload streamed more than it reserved
 	 * @throws IOException may throw IOExceptions
 	 */
-	private HttpResponse saveImage(CompletedFileUpload file) throws IOException {
+	private HttpResponse saveImage(StreamingFileUpload file, long reserved) throws IOException {
 
 		String[] strings = file.getFilename().split("\\.");
 		String extension = strings[strings.length-1];
-		byte[] encoded = Base64.getEncoder().encode(file.getBytes());
-		String msg = imageManager.saveImage(new String(encoded), extension);
+		String msg;
+		try (UploadLimitInputStream data = new UploadLimitInputStream(content(file), reserved)) {
+			msg = imageManager.saveImage(data, extension);
+			if (data.isExceeded()) return HttpResponse.status(HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+		}
 
 		if (msg == null) return HttpResponse.serverError();
 		else return HttpResponse
@@ -68,14 +130,211 @@ public class ImageController {
 	}
 
 	/**
-	 * Retrieve the file corresponding to the given name via an HTTP Get method
+	 * Read an upload as a single stream, made of the parts of its body in the order they arrive
+	 * @param file	Upload to read
+	 * @return content of the upload ; reading it blocks until the next part is received
+	 */
+	private static InputStream content(StreamingFileUpload file) {
+
+		Iterator<PartData> parts = Flowable.fromPublisher(file).blockingIterable(UPLOAD_PREFETCH).iterator();
+		return new SequenceInputStream(new Enumeration<InputStream>() {
+			@Override
+			public boolean hasMoreElements() {
+				return parts.hasNext();
+			}
+
+			@Override
+			public InputStream nextElement() {
+				try {
+					return parts.next().getInputStream();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+
+	}
+
+	/**
+	 * Get a page of the metadata of the media via an HTTP Get request, most recently uploaded first
+	 * @param limit		Maximum number of Media to return, 0 for all of them
+	 * @param offset	Number of Media to skip from the start of the list
+	 * @return List of the Media
+	 */
+	@Get("/")
+	public List<Media> list(@QueryValue(defaultValue = "0") int limit, @QueryValue(defaultValue = "0") int offset) {
+		return imageManager.getMedia(limit, offset);
+	}
+
+	/**
+	 * Retrieve the file corresponding to the given name via an HTTP Get method.
+	 * The whole file is sent as a zero-copy file region, with its MIME type, an ETag and caching headers. The ETag
+	 * is the SHA-256 checksum recorded in the metadata of the image (followed by the width and format of a resized
+	 * copy), so it changes whenever the content does ; files without metadata fall back to their size and time of
+	 * last modification.
+	 * Conditional requests (If-None-Match, If-Modified-Since) are answered with 304 Not Modified, and a single
+	 * byte range (Range, If-Range with an ETag or a date) with 206 Partial Content.
+	 * A width and a format (jpg, png or gif) may be requested, in which case a resized copy is served instead.
 	 * @param imageName	Name of the fie to retrieve
-	 * @return The retrieved file
+	 * @param width		Width wanted, rounded up to the next generated width (0 for the original width)
+	 * @param format	Format wanted (the format of the original if absent)
+	 * @param request	The HTTP request, whose conditional and range headers are checked
+	 * @return HTTP response with the retrieved file, or the requested part of it
+	 */
+	@Get("/{imageName}")
+	public HttpResponse get(String imageName, @QueryValue(defaultValue = "0") int width,
+							@QueryValue Optional<String> format, HttpRequest<?> request) {
+
+		File image = imageManager.getImage(imageName);
+		if (image == null) return HttpResponse.notFound();
+		String originalName = image.getName();
+		if (width < 0 || (format.isPresent() && !ImageDerivatives.isSupported(format.get())))
+			return HttpResponse.badRequest();
+		if (width > 0 || format.isPresent()) {
+			File derivative = derivatives.get(image, width, format.orElse(null));
+			// A derivative may be evicted from the cache by another request as soon as it is returned
+			if (derivative != null && derivative.isFile()) image = derivative;
+		}
+
+		long length = image.length();
+		long lastModified = image.lastModified();
+		String name = image.getName();
+		Media media = imageManager.getMedia(originalName);
+		String etag = (media == null || media.getChecksum() == null)
+				? "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\""
+				: "\"" + media.getChecksum() + name.substring(originalName.length()) + "\"";
+		MediaType type = MediaType.forExtension(name.substring(name.lastIndexOf('.') + 1))
+				.orElse(MediaType.APPLICATION_OCTET_STREAM_TYPE);
+		HttpHeaders headers = request.getHeaders();
+
+		if (notModified(headers, etag, lastModified))
+			return cacheHeaders(HttpResponse.notModified(), etag, lastModified);
+
+		String range = headers.get(HttpHeaders.RANGE);
+		String ifRange = headers.get(HttpHeaders.IF_RANGE);
+		if (range != null && (ifRange == null || rangeStillValid(ifRange, etag, lastModified))) {
+			long[] bounds = parseRange(range, length);
+			if (bounds == null)
+				return HttpResponse.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+						.header(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+			if (bounds.length == 2) {
+				try {
+					FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ).position(bounds[0]);
+					long rangeLength = bounds[1] - bounds[0] + 1;
+					return cacheHeaders(HttpResponse.status(HttpStatus.PARTIAL_CONTENT), etag, lastModified)
+							.header(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + length)
+							.contentType(type)
+							.contentLength(rangeLength)
+							.body(new StreamedFile(new BoundedInputStream(Channels.newInputStream(channel), rangeLength), type));
+				} catch (IOException e) {
+					return HttpResponse.serverError();
+				}
+			}
+		}
+
+		return cacheHeaders(HttpResponse.ok(), etag, lastModified)
+				.contentType(type)
+				.body(new SystemFile(image, type));
+
+	}
+
+	/**
+	 * Check whether the copy of the client is still valid. If-None-Match takes precedence over If-Modified-Since.
+	 * @param headers		Headers of the request
+	 * @param etag			Current ETag of the file
+	 * @param lastModified	Time the file was last modified (milliseconds)
+	 * @return true if the file has not changed since the client retrieved it
+	 */
+	private boolean notModified(HttpHeaders headers, String etag, long lastModified) {
+
+		String ifNoneMatch = headers.get(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) return true;
+			}
+			return false;
+		}
+		String ifModifiedSince = headers.get(HttpHeaders.IF_MODIFIED_SINCE);
+		if (ifModifiedSince == null) return false;
+		try {
+			long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+			return lastModified / 1000 <= since;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Check the If-Range header of a range request : the range is only sent if the copy of the client is current.
+	 * @param ifRange		Value of the If-Range header, an ETag or an HTTP-date
+	 * @param etag			Current ETag of the file
+	 * @param lastModified	Time the file was last modified (milliseconds)
+	 * @return true if the ETag matches (weak ETags never do) or the date is the time of last modification
+	 */
+	private boolean rangeStillValid(String ifRange, String etag, long lastModified) {
+
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+		try {
+			long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+			return lastModified / 1000 == date;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Parse a Range header. Only a single range of bytes is supported; any other form is ignored.
+	 * @param range		Value of the Range header
+	 * @param length	Length of the file
+	 * @return the first and last positions of the range ; an empty array if the header is to be ignored ;
+	 * null if the range cannot be satisfied
+	 */
+	private long[] parseRange(String range, long length) {
+
+		if (!range.startsWith("bytes=") || range.indexOf(',') != -1) return new long[0];
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1) return new long[0];
+		try {
+			long start;
+			long end;
+			if (dash == 0) {
+				// Suffix range : the last n bytes
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix <= 0) return null;
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(spec.substring(0, dash));
+				end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+				if (end < start) return new long[0];
+			}
+			if (start >= length) return null;
+			return new long[] {start, end};
+		} catch (NumberFormatException e) {
+			return new long[0];
+		}
+
+	}
+
+	/**
+	 * Add the validators and caching headers of a file to a response. Images are never modified once saved
+	 * (a new upload gets a new name), so they may be cached by browsers and proxies for a year.
+	 * @param response		Response to add the headers to
+	 * @param etag			ETag of the file
+	 * @param lastModified	Time the file was last modified (milliseconds)
+	 * @return the response
 	 */
-	@Get(value = "/{imageName}", produces = MediaType.MULTIPART_FORM_DATA)
-	@Size
-	public File get(String imageName) {
-		return imageManager.getImage(imageName);
+	private static <T> MutableHttpResponse<T> cacheHeaders(MutableHttpResponse<T> response, String etag, long lastModified) {
+		return response
+				.header(HttpHeaders.ETAG, etag)
+				.header(HttpHeaders.LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME
+						.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC)))
+				.header(HttpHeaders.CACHE_CONTROL, "public, max-age=" + CACHE_SECONDS + ", immutable")
+				.header(HttpHeaders.ACCEPT_RANGES, "bytes");
 	}
 
 
@@ -0,0 +1,407 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import io.micronaut.context.annotation.Value;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.inject.Singleton;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ImageDerivatives produces resized and converted copies of the images, so that clients can download an image at
+ * the size they display it rather than the full resolution original.
+ * Requested widths are rounded up to a few fixed widths, so that a small number of derivatives serve every client,
+ * and images are never enlarged. Each derivative is generated once, with ImageIO, and kept in a cache directory
+ * inside the media directory. The cache is capped in bytes : when it grows past the cap, the least recently used
+ * derivatives are deleted. Its size is read from the 'images.derivatives.max-bytes' configuration.
+ * Images whose dimensions exceed 'images.derivatives.max-pixels' are served as they are rather than decoded, so that
+ * a small file declaring huge dimensions cannot exhaust the memory of the server.
+ * The derivatives of an image are deleted along with it.
+ */
+@Singleton
+public class ImageDerivatives {
+
+	// Widths derivatives are generated at
+	static final int[] WIDTHS = {160, 320, 640, 960, 1280, 1920};
+	// Formats derivatives can be written in
+	private static final List<String> FORMATS = Arrays.asList("jpg", "png", "gif");
+	private static final String TEMPORARY = ".tmp";
+	private static final int LOCK_STRIPES = 64;
+
+	private final Path cache;
+	private final long maxBytes;
+	private final long maxPixels;
+
+	// Size of the cached derivatives, least recently used first
+	private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	// Locks chosen by derivative, so that concurrent requests for the same one generate it once
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	// Metrics on the use of the cache
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+
+	/**
+	 * Main constructor, indexing the derivatives left in the cache by a previous run
+	 * @param maxBytes	Maximum total size of the cached derivatives (bytes)
+	 * @param maxPixels	Maximum number of pixels of the images resized
+	 */
+	public ImageDerivatives(@Value("${images.derivatives.max-bytes:536870912}") long maxBytes,
+							@Value("${images.derivatives.max-pixels:40000000}") long maxPixels) {
+
+		this.maxBytes = maxBytes;
+		this.maxPixels = maxPixels;
+		for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+		ImageManager imageManager = ImageManager.getImageManager();
+		cache = MediaLayout.derivativeStore(Paths.get(imageManager.getDir()).toAbsolutePath().normalize());
+		imageManager.setDerivatives(this);
+		if (!Files.isDirectory(cache)) return;
+		try (Stream<Path> paths = Files.walk(cache)) {
+			List<Path> files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+			for (Path file : files) if (file.toString().endsWith(TEMPORARY)) file.toFile().delete();
+			List<Path> evicted = new ArrayList<>();
+			files.stream().filter(file -> !file.toString().endsWith(TEMPORARY))
+					.sorted(Comparator.comparingLong(file -> file.toFile().lastModified()))
+					.forEach(file -> record(file, file.toFile().length(), evicted));
+			for (Path victim : evicted) delete(victim);
+		} catch (IOException | UncheckedIOException e) {
+			// Start with an empty cache, the files left behind will be overwritten as they are requested again
+		}
+
+	}
+
+
+	/**
+	 * Check whether derivatives can be written in the given format
+	 * @param format	Format name, such as "jpg"
+	 * @return true if the format is supported
+	 */
+	public static boolean isSupported(String format) {
+		return format != null && FORMATS.contains(normalize(format));
+	}
+
+
+	/**
+	 * Get a derivative of an image, generating it unless it is already cached
+	 * @param original	Image file
+	 * @param width		Width wanted, rounded up to the next generated width ; 0 (or less) to keep the original width
+	 * @param format	Format wanted, null to keep the format of the original
+	 * @return the derivative ; null if the original should be served instead, because it already matches the
+	 * request or it cannot be read as an image
+	 */
+	public File get(File original, int width, String format) {
+
+		String name = original.getName();
+		String extension = normalize(name.substring(name.lastIndexOf('.') + 1));
+		String target = (format == null) ? extension : normalize(format);
+		if (!FORMATS.contains(target)) return null;
+		int bucket = bucket(width);
+		Path derivative = derivativePath(cache, name, bucket, target);
+
+		// The cache is checked again once the lock is held, as the derivative may have been generated meanwhile.
+		// Derivatives evicted to make room are only deleted once that lock is released, each under its own lock.
+		List<Path> evicted = new ArrayList<>();
+		try {
+			synchronized (lock(derivative)) {
+				if (Files.isRegularFile(derivative) && derivative.toFile().lastModified() >= original.lastModified()) {
+					hits.incrementAndGet();
+					touch(derivative, evicted);
+					return derivative.toFile();
+				}
+				misses.incrementAndGet();
+				BufferedImage source = read(original);
+				if (source == null) return null;
+				int targetWidth = (bucket == 0) ? source.getWidth() : Math.min(bucket, source.getWidth());
+				if (targetWidth == source.getWidth() && target.equals(extension)) return null;
+				return generate(resize(source, targetWidth, target), target, derivative, evicted);
+			}
+		} catch (IOException | RuntimeException e) { // ImageIO throws unchecked exceptions on malformed images
+			return null;
+		} finally {
+			for (Path victim : evicted) delete(victim);
+		}
+
+	}
+
+
+	/**
+	 * Get the lock guarding a derivative : it is held while the derivative is checked, generated or deleted
+	 * @param derivative	Path of the derivative
+	 * @return lock of the derivative
+	 */
+	private Object lock(Path derivative) {
+		return locks[Math.floorMod(derivative.hashCode(), LOCK_STRIPES)];
+	}
+
+
+	/**
+	 * Delete a derivative evicted from the cache, unless it has been used, and so recorded again, since
+	 * @param victim	Path of the derivative
+	 */
+	private void delete(Path victim) {
+
+		synchronized (lock(victim)) {
+			synchronized (entries) {
+				if (entries.containsKey(victim)) return;
+			}
+			if (victim.toFile().delete()) evictions.incrementAndGet();
+		}
+
+	}
+
+
+	/**
+	 * Decode an image, once its dimensions have been read from its header and checked against the pixel cap
+	 * @param original	Image file
+	 * @return the decoded image ; null if it cannot be read as an image or it has too many pixels
+	 * @throws IOException If the file cannot be read
+	 */
+	private BufferedImage read(File original) throws IOException {
+
+		try (ImageInputStream in = ImageIO.createImageInputStream(original)) {
+			if (in == null) return null;
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) return null;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) return null;
+				return reader.read(0);
+			} finally {
+				reader.dispose();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Delete the cached derivatives of an image, once it has been deleted
+	 * @param name	Name of the image
+	 */
+	void evict(String name) {
+
+		for (int bucket = -1; bucket < WIDTHS.length; bucket++) {
+			for (String format : FORMATS) {
+				Path derivative = derivativePath(cache, name, (bucket < 0) ? 0 : WIDTHS[bucket], format);
+				synchronized (lock(derivative)) {
+					synchronized (entries) {
+						Long size = entries.remove(derivative);
+						if (size != null) bytes -= size;
+					}
+					derivative.toFile().delete();
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * Forget every cached derivative, once the cache directory has been emptied
+	 */
+	void evictAll() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+
+	/**
+	 * Get the path of a derivative in the cache
+	 * @param cache		Cache directory
+	 * @param name		Name of the original image
+	 * @param bucket	Generated width, 0 for the original width
+	 * @param format	Format of the derivative
+	 * @return path of the derivative
+	 */
+	private static Path derivativePath(Path cache, String name, int bucket, String format) {
+		return MediaLayout.shardedPath(cache, name + "-" + bucket + "." + format);
+	}
+
+
+	/**
+	 * Write a derivative to the cache
+	 * @param image			Resized image
+	 * @param format		Format to write it in
+	 * @param derivative	Path of the derivative in the cache
+	 * @param evicted		List the derivatives evicted to make room are added to
+	 * @return the derivative ; null if no writer is available for the format
+	 * @throws IOException If the derivative cannot be written
+	 */
+	private File generate(BufferedImage image, String format, Path derivative, List<Path> evicted) throws IOException {
+
+		Files.createDirectories(derivative.getParent());
+		Path temporary = Files.createTempFile(derivative.getParent(), "derivative-", TEMPORARY);
+		try {
+			if (!ImageIO.write(image, format, temporary.toFile())) return null;
+			Files.move(temporary, derivative, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+		record(derivative, Files.size(derivative), evicted);
+		return derivative.toFile();
+
+	}
+
+
+	/**
+	 * Scale an image down to the given width, keeping its aspect ratio. The image is halved step by step before
+	 * the last scaling, which keeps bilinear interpolation from dropping detail on large reductions.
+	 * @param source	Original image
+	 * @param width		Width of the derivative, at most that of the original
+	 * @param format	Format the derivative will be written in
+	 * @return the resized image
+	 */
+	private static BufferedImage resize(BufferedImage source, int width, String format) {
+
+		boolean opaque = format.equals("jpg"); // JPEG has no alpha channel : transparent areas are made white
+		int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+		BufferedImage current = source;
+		do {
+			int nextWidth = Math.max(width, current.getWidth() / 2);
+			int nextHeight = (nextWidth == width) ? height : Math.max(height, current.getHeight() / 2);
+			BufferedImage next = new BufferedImage(nextWidth, nextHeight,
+					opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+			Graphics2D graphics = next.createGraphics();
+			if (opaque) {
+				graphics.setColor(Color.WHITE);
+				graphics.fillRect(0, 0, nextWidth, nextHeight);
+			}
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+			graphics.dispose();
+			current = next;
+		} while (current.getWidth() != width || current.getHeight() != height);
+		return current;
+
+	}
+
+
+	/**
+	 * Round a requested width up to the next generated width
+	 * @param width	Requested width
+	 * @return generated width ; 0 to keep the original width
+	 */
+	private static int bucket(int width) {
+		if (width <= 0) return 0;
+		for (int bucket : WIDTHS) if (width <= bucket) return bucket;
+		return WIDTHS[WIDTHS.length - 1];
+	}
+
+
+	/**
+	 * Normalize a format name
+	 * @param format	Format name or file extension
+	 * @return lower case format name, "jpeg" being spelt "jpg"
+	 */
+	private static String normalize(String format) {
+		String lower = format.toLowerCase();
+		return lower.equals("jpeg") ? "jpg" : lower;
+	}
+
+
+	/**
+	 * Add a derivative to the cache, then evict the least recently used ones until the cache fits its cap again.
+	 * The evicted derivatives are not deleted here, as their locks are not held : the caller deletes them.
+	 * @param derivative	Path of the derivative
+	 * @param size			Size of the derivative (bytes)
+	 * @param evicted		List the evicted derivatives are added to
+	 */
+	private void record(Path derivative, long size, List<Path> evicted) {
+
+		synchronized (entries) {
+			Long previous = entries.put(derivative, size);
+			bytes += size - ((previous == null) ? 0 : previous);
+			Iterator<Map.Entry<Path, Long>> eldest = entries.entrySet().iterator();
+			while (bytes > maxBytes && eldest.hasNext()) {
+				Map.Entry<Path, Long> entry = eldest.next();
+				if (entry.getKey().equals(derivative)) continue;
+				evicted.add(entry.getKey());
+				bytes -= entry.getValue();
+				eldest.remove();
+			}
+		}
+
+	}
+
+
+	/**
+	 * Mark a cached derivative as just used
+	 * @param derivative	Path of the derivative
+	 * @param evicted		List the derivatives evicted to make room are added to
+	 */
+	private void touch(Path derivative, List<Path> evicted) {
+
+		synchronized (entries) {
+			if (entries.get(derivative) != null) return;
+		}
+		record(derivative, derivative.toFile().length(), evicted);
+
+	}
+
+
+	/**
+	 * Get the number of requests served from the cache
+	 * @return number of cache hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+
+	/**
+	 * Get the number of requests which had to generate a derivative
+	 * @return number of cache misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+
+	/**
+	 * Get the number of derivatives deleted to keep the cache under its cap
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+
+	/**
+	 * Get the total size of the cached derivatives
+	 * @return size in bytes
+	 */
+	public long getCachedBytes() {
+		synchronized (entries) {
+			return bytes;
+		}
+	}
+}
@@ -3,12 +3,30 @@ package main.java.com.projectBackEnd.Services.Image;
 import main.java.com.projectBackEnd.TokenGenerator;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * The ImageManager class deals with low level business logic transactions regarding media (images, gifs, videos, etc).
- * These are stored on the server so no database interaction is involved.
+ * These are stored on the server, while their metadata (Media) is kept in the database by the MediaManager.
  */
 public class ImageManager implements ImageManagerInterface {
 
@@ -17,9 +35,33 @@ public class ImageManager implements ImageManagerInterface {
 	//Random name related variables
 	private final static String lexicon = "ABCDEFGHIJKLMNOPQRSTUVWXYZ12345674890";
 
+	//Maximum number of bytes copied from an upload to its file in one transfer
+	private final static long TRANSFER_CHUNK = 1 << 20;
+
+
+	//Content type recorded when none can be guessed from the name of a file
+	private final static String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+	//Extensions accepted for the saved files, once in lower case
+	private final static Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+	//Locks guarding stored content while it is linked to or released, chosen by checksum
+	private final static int LOCK_STRIPES = 64;
+	private final Object[] blobLocks = new Object[LOCK_STRIPES];
+
 
 	//Directory of the folder where the images are saved
 	private final String dir;
+	private final Path root;
+
+	//In-memory index of the directory, null when disabled
+	private volatile MediaIndex index;
+
+	//Cache of the resized images, null until the server creates it
+	private volatile ImageDerivatives derivatives;
+
+	//Metadata of the files of the directory
+	private final MediaManagerInterface mediaManager = MediaManager.getMediaManager();
 
 	/**
 	 * Private singleton constructor for ImageManager
@@ -27,6 +69,8 @@ public class ImageManager implements ImageManagerInterface {
 	private ImageManager() {
 		imageManager = this;
 		dir = DirectoryHolder.getDirectoryHolder().getDir();
+		root = Paths.get(dir).toAbsolutePath().normalize();
+		for (int i = 0; i < LOCK_STRIPES; i++) blobLocks[i] = new Object();
 	}
 
 	/**
@@ -38,6 +82,74 @@ public class ImageManager implements ImageManagerInterface {
 		else return new ImageManager();
 	}
 
+	/**
+	 * Index the media directory in memory, so that lookups and listings no longer touch the file system.
+	 * The index is kept current by watching the directory.
+	 * @return true if the index is enabled
+	 */
+	public synchronized boolean enableIndex() {
+		if (index != null) return true;
+		try {
+			index = new MediaIndex(root);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Set the cache of the resized images, whose entries are evicted as images are deleted
+	 * @param derivatives	Cache of the resized images
+	 */
+	void setDerivatives(ImageDerivatives derivatives) {
+		this.derivatives = derivatives;
+	}
+
+	/**
+	 * Stop indexing the media directory, going back to looking files up on disk
+	 */
+	public synchronized void disableIndex() {
+		if (index == null) return;
+		try {
+			index.close();
+		} catch (IOException e) {
+			// The watcher thread stops anyway once the index is dropped
+		}
+		index = null;
+	}
+
+	/**
+	 * Create a digest computing the checksum of the saved files
+	 * @return SHA-256 message digest
+	 */
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e); // Every Java platform must support it
+		}
+	}
+
+	/**
+	 * Get the lock guarding stored content, so that it cannot be released while a new file is being linked to it
+	 * @param checksum	SHA-256 checksum of the content, in hexadecimal
+	 * @return lock of the content
+	 */
+	private Object blobLock(String checksum) {
+		return blobLocks[Math.floorMod(checksum.hashCode(), LOCK_STRIPES)];
+	}
+
+	/**
+	 * Check the extension given for a file, which becomes part of its name
+	 * @param extension	File type of the media
+	 * @return the extension in lower case, null if it is not made of 1 to 10 letters and digits
+	 */
+	private static String checkExtension(String extension) {
+		if (extension == null) return null;
+		String lower = extension.toLowerCase(Locale.ROOT);
+		return EXTENSION.matcher(lower).matches() ? lower : null;
+	}
+
 	/**
 	 * Generate a random name using the lexicon
 	 * @return generated name
@@ -47,66 +159,272 @@ public class ImageManager implements ImageManagerInterface {
 	}
 
 	/**
-	 * Save a file with bytes and its extension
-	 * @param fileBytes		File as bytes
+	 * Save a file with bytes and its extension.
+	 * Kept for compatibility : the decoded bytes are handed to saveImage(InputStream, String)
+	 * @param fileBytes		File as bytes, base64 encoded
 	 * @param extension		File type of the media
 	 * @return generated random name withe file extension
 	 */
 	public String saveImage(String fileBytes, String extension) {
 		if (extension == null) return null;
 		byte[] data = Base64.getDecoder().decode(fileBytes.getBytes(StandardCharsets.UTF_8));
-		String fullName;
-		do fullName = randomIdentifier() + "." + extension.toLowerCase();
-		while (getImage(fullName) != null);
-		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(new File(dir + fullName)))) {
-			outputStream.write(data);
+		return saveImage(new ByteArrayInputStream(data), extension);
+	}
+
+	/**
+	 * Save a file by streaming its content straight to disk through a file channel, so that it is never held
+	 * in memory as a whole. The content is stored once in the blob store, under its SHA-256 checksum : if identical
+	 * content was saved before, the new copy is dropped. The file is then given a random name which must not exist
+	 * yet, in its shard directory, as a hard link to the stored content.
+	 * @param data			Content of the file
+	 * @param extension		File type of the media, made of 1 to 10 letters and digits
+	 * @return generated random name with file extension, null if the file could not be written
+	 */
+	public String saveImage(InputStream data, String extension) {
+		extension = checkExtension(extension);
+		if (data == null || extension == null) return null;
+		MessageDigest digest = sha256();
+		long size = 0;
+		try {
+			Path store = MediaLayout.blobStore(root);
+			Files.createDirectories(store);
+			Path upload = Files.createTempFile(store, "upload-", ".tmp");
+			try {
+				try (FileChannel out = FileChannel.open(upload, StandardOpenOption.WRITE);
+					 ReadableByteChannel in = Channels.newChannel(new DigestInputStream(data, digest))) {
+					long transferred;
+					while ((transferred = out.transferFrom(in, size, TRANSFER_CHUNK)) > 0) size += transferred;
+				}
+				String checksum = hex(digest.digest());
+				Path blob = MediaLayout.blobPath(root, checksum);
+				// The stored content may be released by a deletion between the check and the link
+				synchronized (blobLock(checksum)) {
+					if (!Files.exists(blob)) {
+						Files.createDirectories(blob.getParent());
+						Files.move(upload, blob, StandardCopyOption.ATOMIC_MOVE);
+					}
+					return link(blob, size, extension);
+				}
+			} finally {
+				Files.deleteIfExists(upload);
+			}
 		} catch (IOException e) {
 			return null;
 		}
+	}
+
+	/**
+	 * Save a file whose content is already stored, without uploading it again
+	 * @param checksum		SHA-256 checksum of the content, in hexadecimal
+	 * @param extension		File type of the media, made of 1 to 10 letters and digits
+	 * @return generated random name with file extension, null if no content has that checksum
+	 */
+	public String saveImageByChecksum(String checksum, String extension) {
+		extension = checkExtension(extension);
+		if (checksum == null || extension == null || !checksum.matches("[0-9a-f]{64}")) return null;
+		Path blob = MediaLayout.blobPath(root, checksum);
+		synchronized (blobLock(checksum)) {
+			try {
+				return link(blob, Files.size(blob), extension);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Give stored content a new random name, as a hard link (or a copy where links are not supported), and record
+	 * its metadata. The lock of the content must be held.
+	 * @param blob			Stored content
+	 * @param size			Size of the content
+	 * @param extension		Checked file type of the media
+	 * @return generated random name with file extension, null if the file could not be created
+	 */
+	private String link(Path blob, long size, String extension) {
+		String fullName;
+		while (true) {
+			fullName = randomIdentifier() + "." + extension;
+			try {
+				Path target = MediaLayout.shardedPath(root, fullName).normalize();
+				if (!target.startsWith(root)) return null;
+				// A file not yet migrated out of the flat directory would hide the new one
+				if (Files.exists(root.resolve(fullName))) continue;
+				Files.createDirectories(target.getParent());
+				try {
+					Files.createLink(target, blob);
+				} catch (FileAlreadyExistsException e) {
+					throw e;
+				} catch (UnsupportedOperationException | IOException e) {
+					Files.copy(blob, target);
+				}
+				break;
+			} catch (FileAlreadyExistsException e) {
+				// Name already taken, try another one
+			} catch (IOException | InvalidPathException e) {
+				return null;
+			}
+		}
+		MediaIndex index = this.index;
+		if (index != null) index.add(fullName);
+		String contentType = URLConnection.guessContentTypeFromName(fullName);
+		mediaManager.add(new Media(fullName, size, (contentType == null) ? DEFAULT_CONTENT_TYPE : contentType,
+				new Timestamp(System.currentTimeMillis()), blob.getFileName().toString()));
 		return fullName;
 	}
 
+	/**
+	 * Remove stored content once no file refers to it any more. Where the file system reports link counts, the
+	 * content is kept as long as a file is linked to it ; otherwise, as long as some metadata has its checksum.
+	 * The content is checked and removed under its lock, so that it cannot go while a new file is linked to it.
+	 * @param checksum	SHA-256 checksum of the content
+	 */
+	private void release(String checksum) {
+		Path blob = MediaLayout.blobPath(root, checksum);
+		synchronized (blobLock(checksum)) {
+			try {
+				boolean unused;
+				try {
+					unused = (Integer) Files.getAttribute(blob, "unix:nlink") <= 1;
+				} catch (UnsupportedOperationException | IllegalArgumentException e) {
+					unused = mediaManager.countMedia(checksum) == 0;
+				}
+				if (unused) Files.deleteIfExists(blob);
+			} catch (IOException e) {
+				// Left for the next release of the same content
+			}
+		}
+	}
 
 	/**
-	 * Get the file corresponding to the given name
-	 * @param fileName	Name of the file to be searched for
-	 * @return The matching file
+	 * Record the metadata of the media files which have none, such as those saved before metadata was kept or moved
+	 * in by MediaMigration. Each one is hashed and its content put in the blob store, the file becoming a link to
+	 * identical content stored before, so that it is deduplicated and released like any other. Its upload time is
+	 * taken as its time of last modification.
+	 * @return number of files recorded
 	 */
-	public File getImage(String fileName) {
-		File[] fileArray = getFileArray(dir);
-		for (File file : fileArray) {
-			if (file.isFile() && file.getName().equals(fileName)) return file;
+	public int backfillMedia() {
+		Set<String> known = mediaManager.getNames();
+		List<Path> missing = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(root, MediaLayout.LEVELS + 1)) {
+			paths.filter(path -> MediaLayout.isMediaLocation(root, path) && Files.isRegularFile(path)
+					&& !known.contains(path.getFileName().toString()))
+					.forEach(missing::add);
+		} catch (IOException | UncheckedIOException e) {
+			// Record the files listed so far
 		}
-		return null;
+		int recorded = 0;
+		for (Path file : missing) if (backfill(file)) recorded++;
+		return recorded;
 	}
 
 	/**
-	 * Get a list of all the media URLs in the directory
-	 * @return String list of all the media URLs in dir.
+	 * Store the content of a file without metadata in the blob store, and record its metadata
+	 * @param file	Media file
+	 * @return true if the metadata has been recorded
 	 */
-	public List<String> getImageUrls()	{
-		File[] fileArray = getFileArray(dir);
-		List<String> urls = new ArrayList<>();
-		for (int i = 0; i < fileArray.length; i++) {
-			if (fileArray[i].isFile()) urls.add(dir+fileArray[i].getName());
+	private boolean backfill(Path file) {
+		String name = file.getFileName().toString();
+		MessageDigest digest = sha256();
+		long size = 0;
+		try {
+			long lastModified = Files.getLastModifiedTime(file).toMillis();
+			try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) size += read;
+			}
+			String checksum = hex(digest.digest());
+			Path blob = MediaLayout.blobPath(root, checksum);
+			synchronized (blobLock(checksum)) {
+				if (!Files.exists(blob)) {
+					Files.createDirectories(blob.getParent());
+					try {
+						Files.createLink(blob, file);
+					} catch (UnsupportedOperationException | IOException e) {
+						Files.copy(file, blob);
+					}
+				} else if (!Files.isSameFile(blob, file)) {
+					// Identical content is already stored : the file is replaced by a link to it
+					Path link = MediaLayout.blobStore(root).resolve("link-" + randomIdentifier() + ".tmp");
+					try {
+						Files.createLink(link, blob);
+						Files.move(link, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					} catch (UnsupportedOperationException | IOException e) {
+						Files.deleteIfExists(link);	// The file keeps its own copy of the content
+					}
+				}
+				String contentType = URLConnection.guessContentTypeFromName(name);
+				mediaManager.add(new Media(name, size, (contentType == null) ? DEFAULT_CONTENT_TYPE : contentType,
+						new Timestamp(lastModified), checksum));
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
 		}
-		return urls;
 	}
 
 	/**
-	 * Using a string directory, return an array of the files in the directory.
-	 * @param directoryPath The string location of the directory to be searched
-	 * @return All the files in the directory
+	 * Write a checksum in hexadecimal
+	 * @param checksum	Bytes of the checksum
+	 * @return lower case hexadecimal checksum
+	 */
+	private static String hex(byte[] checksum) {
+		return String.format("%0" + (checksum.length * 2) + "x", new BigInteger(1, checksum));
+	}
+
+	/**
+	 * Get the file corresponding to the given name. The name is checked against the media directory, so that
+	 * names which do not designate a file of that directory (such as "." or "../x") are rejected, then the file is
+	 * looked up in its shard directory.
+	 * @param fileName	Name of the file to be searched for
+	 * @return The matching file, null if there is none
 	 */
-	private static File[] getFileArray(String directoryPath) {
-		File directory = new File(directoryPath);
+	public File getImage(String fileName) {
+		Path path = resolve(fileName);
+		if (path == null) return null;
+		String name = path.getFileName().toString();
+		MediaIndex index = this.index;
+		if (index != null && !index.contains(name)) return null;
+		Path found = MediaLayout.locate(root, name);
+		return found == null ? null : found.toFile();
+	}
+
+	/**
+	 * Resolve a file name against the media directory, guarding against path traversal
+	 * @param fileName	Name of the file
+	 * @return path of the file, null if the name does not designate an entry of the media directory
+	 */
+	private Path resolve(String fileName) {
+		if (fileName == null) return null;
 		try {
-			return directory.listFiles();
-		} catch (Exception e){
+			Path path = root.resolve(fileName).normalize();
+			return root.equals(path.getParent()) ? path : null;
+		} catch (InvalidPathException e) {
 			return null;
 		}
 	}
 
+	/**
+	 * Get a list of all the media URLs in the directory.
+	 * The URLs are made of the directory and the name of the files, whichever shard directory they are stored in.
+	 * @return String list of all the media URLs in dir.
+	 */
+	public List<String> getImageUrls()	{
+		List<String> urls = new ArrayList<>();
+		MediaIndex index = this.index;
+		if (index != null) {
+			for (String name : index.names()) urls.add(dir+name);
+			return urls;
+		}
+		try (Stream<Path> paths = Files.walk(root, MediaLayout.LEVELS + 1)) {
+			paths.filter(path -> MediaLayout.isMediaLocation(root, path) && Files.isRegularFile(path))
+					.forEach(path -> urls.add(dir+path.getFileName()));
+		} catch (IOException | UncheckedIOException e) {
+			// Return the files listed so far
+		}
+		return urls;
+	}
+
 	/**
 	 * Get the output directory
 	 * @return directory
@@ -116,24 +434,68 @@ public class ImageManager implements ImageManagerInterface {
 	}
 
 	/**
-	 * Delete an file based on its name
+	 * Delete an file based on its name, along with its resized copies
 	 * @param fileName The name of the file to be deleted
 	 * @return Whether delete was successful
 	 */
 	public boolean deleteImage(String fileName)
 	{
 		File foundImage = getImage(fileName);
-		return (foundImage == null) ? false : foundImage.delete();
+		if (foundImage == null || !foundImage.delete()) return false;
+		String name = foundImage.getName();
+		MediaIndex index = this.index;
+		if (index != null) index.remove(name);
+		ImageDerivatives derivatives = this.derivatives;
+		if (derivatives != null) derivatives.evict(name);
+		Media media = mediaManager.getMedia(name);
+		mediaManager.remove(name);
+		if (media != null) release(media.getChecksum());
+		return true;
+	}
+
+	/**
+	 * Get a page of the metadata of the media, most recently uploaded first
+	 * @param limit		Maximum number of Media to return, 0 (or less) for no limit
+	 * @param offset	Number of Media to skip from the start of the list
+	 * @return list of at most limit Media
+	 */
+	public List<Media> getMedia(int limit, int offset) {
+		return mediaManager.getMedia(limit, offset);
+	}
+
+	/**
+	 * Get the metadata of an image
+	 * @param imageName	Name of the image
+	 * @return the Media of the image, null if it has none
+	 */
+	public Media getMedia(String imageName) {
+		return mediaManager.getMedia(imageName);
 	}
 
 	/**
-	 * Delete all the media from the server
+	 * Delete all the media from the server, in a single pass over the media directory, along with their stored
+	 * content, resized copies and metadata
 	 */
 	public void deleteAll() {
-		List<String> listOfImageUrls = getImageUrls();
-		for (String imageUrl : listOfImageUrls) {
-			deleteImage(imageUrl.substring(imageUrl.lastIndexOf("/") + 1));
+		MediaIndex index = this.index;
+		try (Stream<Path> paths = Files.walk(root, MediaLayout.LEVELS + 1)) {
+			paths.filter(path -> MediaLayout.isMediaLocation(root, path) && Files.isRegularFile(path))
+					.forEach(path -> {
+						if (path.toFile().delete() && index != null) index.remove(path.getFileName().toString());
+					});
+		} catch (IOException | UncheckedIOException e) {
+			// Leave the files which could not be reached
+		}
+		for (Path store : new Path[] {MediaLayout.blobStore(root), MediaLayout.derivativeStore(root)}) {
+			try (Stream<Path> paths = Files.walk(store)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			} catch (IOException | UncheckedIOException e) {
+				// Nothing stored yet
+			}
 		}
+		ImageDerivatives derivatives = this.derivatives;
+		if (derivatives != null) derivatives.evictAll();
+		mediaManager.deleteAll();
 	}
 
-}
\ No newline at end of file
+}
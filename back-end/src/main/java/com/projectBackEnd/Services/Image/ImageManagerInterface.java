@@ -2,6 +2,7 @@ package main.java.com.projectBackEnd.Services.Image;
 
 import java.util.List;
 import java.io.File;
+import java.io.InputStream;
 /**
  *  Methods used by ImageManagers for image uploading and deleting
  */
@@ -10,6 +11,10 @@ public interface ImageManagerInterface {
 
     String saveImage(String imageBytes, String extension);
 
+    String saveImage(InputStream data, String extension);
+
+    String saveImageByChecksum(String checksum, String extension);
+
     File getImage(String imageName);
 
     String getDir();
@@ -18,6 +23,16 @@ public interface ImageManagerInterface {
 
     boolean deleteImage(String imageName);
 
+    List<Media> getMedia(int limit, int offset);
+
+    Media getMedia(String imageName);
+
+    int backfillMedia();
+
     void deleteAll();
 
+    boolean enableIndex();
+
+    void disableIndex();
+
 }
@@ -0,0 +1,137 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import main.java.com.projectBackEnd.TableEntity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * Media objects are database entities for the table 'Media' defined in this class.
+ * Each one holds the metadata of a file of the media directory, keyed by the name of the file : its size, content
+ * type, upload time and SHA-256 checksum. The ImageManager maintains them as it saves and deletes files, so that
+ * the media can be listed without walking the directory.
+ */
+@Entity
+@Table(name = Media.TABLENAME, indexes = {@Index(name = Media.ORDER_INDEX, columnList = Media.ORDER_COLUMNS),
+		@Index(name = Media.CHECKSUM_INDEX, columnList = Media.CHECKSUM)})
+public class Media implements TableEntity<Media> {
+
+	// 'Media' database table name and attributes
+	static final String TABLENAME = "Media";
+	private static final String NAME = "Name";
+	private static final String SIZE = "Size";
+	private static final String CONTENT_TYPE = "ContentType";
+	private static final String UPLOADED = "Uploaded";
+	static final String CHECKSUM = "Checksum";
+
+	// Index backing the listing order of the media (most recent first)
+	static final String ORDER_INDEX = "Media_Upload_Order";
+	static final String ORDER_COLUMNS = UPLOADED + " DESC";
+
+	// Index finding the files which share the same content
+	static final String CHECKSUM_INDEX = "Media_Checksum";
+
+	@Id
+	@Column(name = NAME, nullable = false, length = 255)
+	private String name;
+
+	@Column(name = SIZE, nullable = false)
+	private long size;
+
+	@Column(name = CONTENT_TYPE, nullable = false)
+	private String contentType;
+
+	@Column(name = UPLOADED, nullable = false)
+	private Timestamp uploaded;
+
+	@Column(name = CHECKSUM, nullable = false, length = 64)
+	private String checksum;
+
+	/**
+	 * Default constructor
+	 */
+	public Media() {}
+
+	/**
+	 * Constructor for Media
+	 * @param name			Name of the file
+	 * @param size			Size of the file (bytes)
+	 * @param contentType	MIME type of the file
+	 * @param uploaded		Time the file was saved
+	 * @param checksum		SHA-256 checksum of the content, in hexadecimal
+	 */
+	public Media(String name, long size, String contentType, Timestamp uploaded, String checksum) {
+		this.name = name;
+		this.size = size;
+		this.contentType = contentType;
+		this.uploaded = uploaded;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Get the name of the file
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the size of the file
+	 * @return size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the MIME type of the file
+	 * @return content type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Get the time the file was saved
+	 * @return upload time
+	 */
+	public Timestamp getUploaded() {
+		return uploaded;
+	}
+
+	/**
+	 * Get the checksum of the content of the file
+	 * @return SHA-256 checksum, in hexadecimal
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Get PrimaryKey
+	 * @return name (PrimaryKey of table Media)
+	 */
+	public Serializable getPrimaryKey() {
+		return name;
+	}
+
+	/**
+	 * Create a copy of TableEntity
+	 * @param toCopy	The Media to copy
+	 * @return the copied TableEntity (this Media)
+	 */
+	public Media copy(Media toCopy) {
+		name = toCopy.getName();
+		size = toCopy.getSize();
+		contentType = toCopy.getContentType();
+		uploaded = toCopy.getUploaded();
+		checksum = toCopy.getChecksum();
+		return this;
+	}
+}
@@ -0,0 +1,41 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+
+/**
+ * Records the metadata of the media files which have none once the application has started, so that images saved
+ * before metadata was kept, or moved in by MediaMigration, are listed, deduplicated and released like the others.
+ * Files which already have metadata are skipped, so the pass only hashes files once. It can be turned off with the
+ * 'images.backfill.enabled' configuration.
+ */
+@Singleton
+@Requires(property = "images.backfill.enabled", value = "true")
+public class MediaBackfill implements ApplicationEventListener<StartupEvent> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MediaBackfill.class);
+
+	/**
+	 * Record the missing metadata once the application context, and so the database, is ready
+	 * @param event	The startup event
+	 */
+	@Override
+	public void onApplicationEvent(StartupEvent event) {
+		backfill();
+	}
+
+	/**
+	 * Record the metadata of the media files which have none
+	 * @return number of files recorded
+	 */
+	public int backfill() {
+		int recorded = ImageManager.getImageManager().backfillMedia();
+		if (recorded > 0) LOG.info("Recorded the metadata of {} media files", recorded);
+		return recorded;
+	}
+}
@@ -0,0 +1,210 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * MediaIndex holds the names of the files of the media directory in memory, so that looking an image up does not
+ * touch the file system. The ImageManager updates it as it saves and deletes files, and a WatchService keeps it
+ * current when files are added or removed by other means. The media directory and each of its shard directories which
+ * exist are watched, new shard directories being registered as they appear. If the watcher misses events, the
+ * directory is listed again.
+ *
+ * A full media directory has up to 65,792 shard directories, more than the watches a user may hold by default on
+ * Linux (fs.inotify.max_user_watches). Once the file system refuses a watch, the index stops registering directories
+ * and lists the media directory again every RESCAN_INTERVAL seconds instead.
+ */
+class MediaIndex implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MediaIndex.class);
+	private static final long RESCAN_INTERVAL = 60;	// Seconds between two listings once watches are exhausted
+
+	private final Path root;
+	private final Set<String> names = ConcurrentHashMap.newKeySet();
+	private final WatchService watcher;
+	private volatile boolean polling = false;	// True once the file system has refused a watch
+
+	/**
+	 * Index the given directory and start watching it
+	 * @param root	Media directory
+	 * @throws IOException If the directory cannot be listed or watched
+	 */
+	MediaIndex(Path root) throws IOException {
+
+		this.root = root;
+		watcher = root.getFileSystem().newWatchService();
+		rescan();
+		Thread thread = new Thread(this::watch, "media-index");
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/**
+	 * Check whether a file of the given name is in the directory
+	 * @param name	Name of the file
+	 * @return true if the file is indexed
+	 */
+	boolean contains(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * Get the names of all the indexed files
+	 * @return copy of the indexed names
+	 */
+	Set<String> names() {
+		return new HashSet<>(names);
+	}
+
+	/**
+	 * Check whether the index has given up watching every directory and relies on periodic listings
+	 * @return true if the directory is listed again every RESCAN_INTERVAL seconds
+	 */
+	boolean isPolling() {
+		return polling;
+	}
+
+	/**
+	 * Record a file which has just been saved
+	 * @param name	Name of the file
+	 */
+	void add(String name) {
+		names.add(name);
+	}
+
+	/**
+	 * Record a file which has just been deleted
+	 * @param name	Name of the file
+	 */
+	void remove(String name) {
+		names.remove(name);
+	}
+
+	/**
+	 * List the directory again, replacing the indexed names with the media files it contains, and watch every
+	 * directory found on the way while watches are available
+	 * @throws IOException If the directory cannot be listed
+	 */
+	private void rescan() throws IOException {
+
+		Set<String> current = new HashSet<>();
+		scan(root, current);
+		names.retainAll(current);
+		names.addAll(current);
+
+	}
+
+	/**
+	 * Watch a directory, unless watches are exhausted, and collect the media files found in it and under it
+	 * @param directory	Media directory or one of its shard directories
+	 * @param found		Set the names of the files are added to
+	 * @throws IOException If the directory cannot be listed
+	 */
+	private void scan(Path directory, Set<String> found) throws IOException {
+
+		if (!polling) {
+			try {
+				directory.register(watcher, ENTRY_CREATE, ENTRY_DELETE);
+			} catch (IOException e) {
+				polling = true;
+				LOG.warn("Cannot watch {} ({}), listing {} every {}s instead", directory, e.getMessage(), root,
+						RESCAN_INTERVAL);
+			}
+		}
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path entry : entries) {
+				if (Files.isDirectory(entry)) {
+					if (MediaLayout.isShardDirectory(root, entry)) scan(entry, found);
+				} else if (MediaLayout.isMediaLocation(root, entry) && Files.isRegularFile(entry)) {
+					found.add(entry.getFileName().toString());
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Apply the events of the watcher to the index until the watcher is closed, listing the directory again at
+	 * regular intervals once watches are exhausted
+	 */
+	private void watch() {
+
+		long nextRescan = 0;
+		while (true) {
+			WatchKey key;
+			try {
+				if (!polling) key = watcher.take();
+				else key = watcher.poll(Math.max(0, nextRescan - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			if (polling && System.currentTimeMillis() >= nextRescan) {
+				try {
+					rescan();
+				} catch (IOException e) {
+					// Keep the current names until the next listing
+				}
+				nextRescan = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(RESCAN_INTERVAL);
+			}
+			if (key == null) continue;
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				try {
+					if (event.kind() == OVERFLOW) {
+						rescan();
+						continue;
+					}
+					Path path = directory.resolve((Path) event.context());
+					String name = path.getFileName().toString();
+					if (event.kind() == ENTRY_DELETE) {
+						// The file may have been moved rather than deleted, as done by the migration
+						if (MediaLayout.locate(root, name) == null) names.remove(name);
+					} else if (Files.isDirectory(path)) {
+						if (MediaLayout.isShardDirectory(root, path)) {
+							Set<String> found = new HashSet<>();
+							scan(path, found);
+							names.addAll(found);
+						}
+					} else if (MediaLayout.isMediaLocation(root, path) && Files.isRegularFile(path)) {
+						names.add(name);
+					}
+				} catch (IOException e) {
+					// Keep the current names until the next event
+				} catch (ClosedWatchServiceException e) {
+					return;
+				}
+			}
+			// A key which cannot be reset belongs to a directory which no longer exists
+			key.reset();
+		}
+
+	}
+
+	/**
+	 * Stop watching the directory
+	 * @throws IOException If the watcher cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		watcher.close();
+	}
+}
@@ -0,0 +1,30 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Requires;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Turns on the in-memory index of the media directory when the server starts, if the 'images.index.enabled'
+ * configuration is set, and turns it off when the application stops.
+ */
+@Context
+@Requires(property = "images.index.enabled", value = "true")
+public class MediaIndexBinder {
+
+	/**
+	 * Class constructor
+	 */
+	public MediaIndexBinder() {
+		ImageManager.getImageManager().enableIndex();
+	}
+
+	/**
+	 * Stop watching the media directory
+	 */
+	@PreDestroy
+	void release() {
+		ImageManager.getImageManager().disableIndex();
+	}
+}
@@ -0,0 +1,132 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * MediaLayout decides where a media file is stored inside the media directory.
+ * Files are spread over two levels of sub-directories named after a hash of the file name (for instance
+ * images/3f/a2/ABCD1234.png), so that no single directory grows to hundreds of thousands of entries.
+ * Files saved before the layout was introduced may still sit directly in the media directory, until MediaMigration
+ * moves them : they are looked up there as well.
+ *
+ * The content of the files is stored once in the blob store (images/.blobs/ba/78/[SHA-256 checksum]), which the
+ * files are hard links to, so that identical uploads share their storage. Resized copies of the images are cached
+ * by ImageDerivatives in a directory of their own, sharded in the same way.
+ */
+public final class MediaLayout {
+
+	static final int LEVELS = 2;		// Number of levels of shard directories
+	static final int WIDTH = 2;			// Number of hexadecimal characters naming a shard directory
+	static final String BLOBS = ".blobs";	// Directory of the content store, inside the media directory
+	static final String DERIVATIVES = ".derivatives";	// Directory of the resized images, inside the media directory
+
+	/**
+	 * Private constructor, this class only holds static methods
+	 */
+	private MediaLayout() {}
+
+	/**
+	 * Get the path at which a file is stored in the sharded layout
+	 * @param root	Media directory
+	 * @param name	Name of the file
+	 * @return path of the file
+	 */
+	public static Path shardedPath(Path root, String name) {
+		CRC32 crc = new CRC32();
+		crc.update(name.getBytes(StandardCharsets.UTF_8));
+		return shard(root, String.format("%08x", crc.getValue()), name);
+	}
+
+	/**
+	 * Get the directory of the content store
+	 * @param root	Media directory
+	 * @return blob store directory
+	 */
+	static Path blobStore(Path root) {
+		return root.resolve(BLOBS);
+	}
+
+	/**
+	 * Get the directory of the cache of resized images
+	 * @param root	Media directory
+	 * @return derivative cache directory
+	 */
+	static Path derivativeStore(Path root) {
+		return root.resolve(DERIVATIVES);
+	}
+
+	/**
+	 * Get the path at which content is stored
+	 * @param root		Media directory
+	 * @param checksum	SHA-256 checksum of the content, in hexadecimal
+	 * @return path of the stored content
+	 */
+	static Path blobPath(Path root, String checksum) {
+		return shard(root.resolve(BLOBS), checksum, checksum);
+	}
+
+	/**
+	 * Place a file in the shard directories named after the start of a hash
+	 * @param base	Directory holding the shard directories
+	 * @param hash	Hexadecimal hash choosing the shard
+	 * @param name	Name of the file
+	 * @return path of the file
+	 */
+	private static Path shard(Path base, String hash, String name) {
+		Path directory = base;
+		for (int level = 0; level < LEVELS; level++)
+			directory = directory.resolve(hash.substring(level * WIDTH, (level + 1) * WIDTH));
+		return directory.resolve(name);
+	}
+
+	/**
+	 * Find the file of the given name, in its shard directory or, failing that, directly in the media directory
+	 * @param root	Media directory
+	 * @param name	Name of the file
+	 * @return path of the file, null if it is in neither place
+	 */
+	static Path locate(Path root, String name) {
+		Path sharded = shardedPath(root, name);
+		if (Files.isRegularFile(sharded)) return sharded;
+		Path flat = root.resolve(name);
+		return Files.isRegularFile(flat) ? flat : null;
+	}
+
+	/**
+	 * Check whether a path found under the media directory is at a place where media files are stored : directly
+	 * in the media directory (not yet migrated), or at the bottom of the shard directories, the stores aside
+	 * @param root	Media directory
+	 * @param path	Path under the media directory
+	 * @return true if a media file may be stored at that path
+	 */
+	static boolean isMediaLocation(Path root, Path path) {
+		Path relative = root.relativize(path);
+		if (isReserved(relative)) return false;
+		int depth = relative.getNameCount();
+		return depth == 1 || depth == LEVELS + 1;
+	}
+
+	/**
+	 * Check whether a directory found under the media directory is a shard directory
+	 * @param root		Media directory
+	 * @param directory	Directory under the media directory
+	 * @return true if media files may be stored in or under that directory
+	 */
+	static boolean isShardDirectory(Path root, Path directory) {
+		Path relative = root.relativize(directory);
+		return relative.getNameCount() <= LEVELS && !isReserved(relative);
+	}
+
+	/**
+	 * Check whether a path relative to the media directory lies in one of the stores kept inside it
+	 * @param relative	Path relative to the media directory
+	 * @return true if the path is in the blob store or the derivative cache
+	 */
+	private static boolean isReserved(Path relative) {
+		String first = relative.getName(0).toString();
+		return first.equals(BLOBS) || first.equals(DERIVATIVES);
+	}
+}
@@ -0,0 +1,122 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import main.java.com.projectBackEnd.EntityManager;
+import main.java.com.projectBackEnd.HibernateUtility;
+import org.hibernate.query.Query;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MediaManager stores and retrieves the Media metadata of the files of the media directory.
+ * This class implements MediaManagerInterface and extends EntityManager
+ */
+public class MediaManager extends EntityManager implements MediaManagerInterface {
+
+	private static MediaManagerInterface mediaManager;
+
+	/**
+	 * Private Constructor of MediaManager, implementing the singleton design pattern
+	 */
+	private MediaManager() {
+		super();
+		setSubclass(Media.class);
+		HibernateUtility.addAnnotation(Media.class);
+		mediaManager = this;
+	}
+
+	/**
+	 * Get the MediaManagerInterface
+	 * @return MediaManagerInterface
+	 */
+	public static MediaManagerInterface getMediaManager() {
+		if (mediaManager != null) return mediaManager;
+		else return new MediaManager();
+	}
+
+	/**
+	 * Record the metadata of a file which has just been saved
+	 * @param media	Metadata of the file
+	 */
+	public void add(Media media) {
+		insertTuple(media);
+	}
+
+	/**
+	 * Find the metadata of a file
+	 * @param name	Name of the file
+	 * @return the Media ; else null if there is none
+	 */
+	public Media getMedia(String name) {
+		return (name == null) ? null : (Media) getByPrimaryKey(name);
+	}
+
+	/**
+	 * Get a page of the metadata of the files, most recently uploaded first
+	 * @param limit		Maximum number of Media to return, 0 (or less) for no limit
+	 * @param offset	Number of Media to skip from the start of the list
+	 * @return list of at most limit Media
+	 */
+	public List<Media> getMedia(int limit, int offset) {
+		return runTransaction(session -> {
+			Query<Media> query = session.createQuery(
+					"from Media m order by m.uploaded desc, m.name", Media.class);
+			query.setFirstResult(Math.max(offset, 0));
+			if (limit > 0) query.setMaxResults(limit);
+			return query.getResultList();
+		}, null);
+	}
+
+	/**
+	 * Count the files which have metadata
+	 * @return number of Media
+	 */
+	public long countMedia() {
+		Long count = runTransaction(session -> session.createQuery("select count(m) from Media m", Long.class)
+				.uniqueResult(), 0L);
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * Count the files which share the given content
+	 * @param checksum	SHA-256 checksum of the content
+	 * @return number of Media with that checksum
+	 */
+	public long countMedia(String checksum) {
+		Long count = runTransaction(session -> session.createQuery(
+				"select count(m) from Media m where m.checksum = :checksum", Long.class)
+				.setParameter("checksum", checksum)
+				.uniqueResult(), 0L);
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * Get the names of the files which have metadata
+	 * @return set of the names
+	 */
+	public Set<String> getNames() {
+		List<String> names = runTransaction(session -> session.createQuery("select m.name from Media m", String.class)
+				.getResultList(), null);
+		return (names == null) ? new HashSet<>() : new HashSet<>(names);
+	}
+
+	/**
+	 * Remove the metadata of a file which has been deleted
+	 * @param name	Name of the file
+	 */
+	public void remove(String name) {
+		if (name == null) return;
+		runTransaction(session -> session.createQuery("delete from Media m where m.name = :name")
+				.setParameter("name", name)
+				.executeUpdate(), 0);
+	}
+
+	/**
+	 * Remove the metadata of every file with a single statement
+	 */
+	@Override
+	public void deleteAll() {
+		runTransaction(session -> session.createQuery("delete from Media").executeUpdate(), 0);
+	}
+}
@@ -0,0 +1,18 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The interface for all MediaManagers
+ */
+public interface MediaManagerInterface {
+	void add(Media media);
+	Media getMedia(String name);
+	List<Media> getMedia(int limit, int offset);
+	long countMedia();
+	long countMedia(String checksum);
+	Set<String> getNames();
+	void remove(String name);
+	void deleteAll();
+}
@@ -0,0 +1,56 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * MediaMigration moves the files of a flat media directory into the sharded layout of MediaLayout.
+ * It can be run while the server is up : files are looked up in both places, and each one is moved atomically.
+ * A file whose sharded path is already taken is left where it is.
+ *
+ * Usage : MediaMigration [media directory], which defaults to the directory of the DirectoryHolder.
+ */
+public class MediaMigration {
+
+	/**
+	 * Private constructor, this class only holds static methods
+	 */
+	private MediaMigration() {}
+
+	/**
+	 * Move every file found directly in the media directory to its shard directory
+	 * @param root	Media directory
+	 * @return number of files moved
+	 * @throws IOException If the directory cannot be listed or a shard directory cannot be created
+	 */
+	public static int migrate(Path root) throws IOException {
+
+		root = root.toAbsolutePath().normalize();
+		int moved = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(root, Files::isRegularFile)) {
+			for (Path file : files) {
+				Path target = MediaLayout.shardedPath(root, file.getFileName().toString());
+				if (Files.exists(target)) continue;
+				Files.createDirectories(target.getParent());
+				Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+				moved++;
+			}
+		}
+		return moved;
+
+	}
+
+	/**
+	 * Run the migration
+	 * @param args	Optional path of the media directory
+	 * @throws IOException If the migration fails
+	 */
+	public static void main(String[] args) throws IOException {
+		Path root = Paths.get(args.length > 0 ? args[0] : DirectoryHolder.getDirectoryHolder().getDir());
+		System.out.println("Moved " + migrate(root) + " files of " + root + " into shard directories");
+	}
+}
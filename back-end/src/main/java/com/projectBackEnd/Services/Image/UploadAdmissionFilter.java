@@ -0,0 +1,185 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpMethod;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UploadAdmissionFilter bounds the uploads processed at the same time, both in number and in bytes (as announced
+ * by their Content-Length), so that a burst of large uploads cannot exhaust the memory or the disk bandwidth of the
+ * server. An upload which does not fit is turned away at once with 503 Service Unavailable and a Retry-After header,
+ * rather than queued ; one larger than the whole byte budget is refused with 413.
+ * Uploads of unknown length (chunked) reserve an equal share of the byte budget : the reservation is passed on to
+ * the controller in the RESERVED_BYTES attribute of the request, and an upload which streams more than that is
+ * refused with 413 as well.
+ * The upload route takes its file as a StreamingFileUpload, so this filter runs as soon as the headers of the file
+ * part arrive, before its content is read : a rejected upload is never received in full. Adding an image by
+ * checksum carries no content and is not counted.
+ *
+ * The limits are read from the 'uploads' configuration.
+ */
+@Filter({"/images", "/images/**"})
+public class UploadAdmissionFilter implements HttpServerFilter {
+
+	private static final String CHECKSUM_PATH = "/images/checksum/";	// Uploads without a body
+	static final String RESERVED_BYTES = "uploads.reserved-bytes";		// Request attribute : bytes reserved
+
+	private final int maxConcurrent;
+	private final long maxBytes;
+	private final long retryAfter;
+	private final Semaphore slots;
+
+	// Metrics on the uploads admitted and rejected by this filter
+	private final AtomicLong inFlightBytes = new AtomicLong();
+	private final AtomicLong admitted = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+
+	/**
+	 * Main constructor
+	 * @param maxConcurrent	Maximum number of uploads processed at the same time
+	 * @param maxBytes		Maximum total size of the uploads processed at the same time (bytes)
+	 * @param retryAfter	Delay clients are asked to wait before retrying a rejected upload (seconds)
+	 */
+	public UploadAdmissionFilter(@Value("${uploads.max-concurrent:4}") int maxConcurrent,
+								 @Value("${uploads.max-bytes:209715200}") long maxBytes,
+								 @Value("${uploads.retry-after:5}") long retryAfter) {
+
+		this.maxConcurrent = maxConcurrent;
+		this.maxBytes = maxBytes;
+		this.retryAfter = retryAfter;
+		this.slots = new Semaphore(maxConcurrent);
+
+	}
+
+
+	/**
+	 * Admit or reject an upload ; other requests go through untouched
+	 * @param request	The HTTP request
+	 * @param chain		The rest of the filter chain
+	 * @return the response of the controller, or the rejection
+	 */
+	@Override
+	public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+
+		if (request.getMethod() != HttpMethod.POST || request.getPath().startsWith(CHECKSUM_PATH))
+			return chain.proceed(request);
+
+		long length = request.getContentLength();
+		long bytes = (length < 0) ? maxBytes / maxConcurrent : length;
+		if (bytes > maxBytes) {
+			rejected.incrementAndGet();
+			return Flowable.just(HttpResponse.status(HttpStatus.REQUEST_ENTITY_TOO_LARGE));
+		}
+		if (!tryAdmit(bytes)) return reject();
+		request.setAttribute(RESERVED_BYTES, bytes);
+		return Flowable.fromPublisher(chain.proceed(request))
+				.doOnNext(response -> {
+					if (response.getStatus() == HttpStatus.REQUEST_ENTITY_TOO_LARGE) rejected.incrementAndGet();
+				})
+				.doFinally(() -> release(bytes));
+
+	}
+
+
+	/**
+	 * Take a slot and room in the byte budget for an upload, if both are available
+	 * @param bytes	Size of the upload
+	 * @return true if the upload is admitted, in which case release must be called once it is processed
+	 */
+	private boolean tryAdmit(long bytes) {
+
+		if (!slots.tryAcquire()) return false;
+		if (!reserve(bytes)) {
+			slots.release();
+			return false;
+		}
+		admitted.incrementAndGet();
+		return true;
+
+	}
+
+
+	/**
+	 * Give back the slot and the bytes of an admitted upload
+	 * @param bytes	Size of the upload, as given to tryAdmit
+	 */
+	private void release(long bytes) {
+		inFlightBytes.addAndGet(-bytes);
+		slots.release();
+	}
+
+
+	/**
+	 * Reserve room in the byte budget for an upload
+	 * @param bytes	Size of the upload
+	 * @return true if the upload fits in what is left of the budget
+	 */
+	private boolean reserve(long bytes) {
+		long current;
+		do {
+			current = inFlightBytes.get();
+			if (current + bytes > maxBytes) return false;
+		} while (!inFlightBytes.compareAndSet(current, current + bytes));
+		return true;
+	}
+
+
+	/**
+	 * Turn an upload away because the server is saturated
+	 * @return 503 response asking the client to retry later
+	 */
+	private Publisher<MutableHttpResponse<?>> reject() {
+		rejected.incrementAndGet();
+		return Flowable.just(HttpResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter)));
+	}
+
+
+	/**
+	 * Get the number of uploads being processed
+	 * @return in-flight uploads
+	 */
+	public int getInFlightUploads() {
+		return maxConcurrent - slots.availablePermits();
+	}
+
+
+	/**
+	 * Get the total size of the uploads being processed
+	 * @return in-flight bytes
+	 */
+	public long getInFlightBytes() {
+		return inFlightBytes.get();
+	}
+
+
+	/**
+	 * Get the number of uploads admitted since the server started
+	 * @return admitted uploads
+	 */
+	public long getAdmitted() {
+		return admitted.get();
+	}
+
+
+	/**
+	 * Get the number of uploads turned away since the server started
+	 * @return rejected uploads
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+}
@@ -0,0 +1,72 @@
+package main.java.com.projectBackEnd.Services.Image;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * UploadLimitInputStream counts the bytes read from an upload, and fails once they go over the number of bytes
+ * reserved for it, so that an upload of unknown length cannot exceed its share of the upload budget.
+ */
+class UploadLimitInputStream extends FilterInputStream {
+
+	private long remaining;
+	private boolean exceeded = false;
+
+	/**
+	 * Main constructor
+	 * @param in		Content of the upload
+	 * @param limit		Number of bytes which may be read
+	 */
+	UploadLimitInputStream(InputStream in, long limit) {
+		super(in);
+		remaining = limit;
+	}
+
+	/**
+	 * Check whether the upload went over its limit
+	 * @return true if reading was stopped because the upload is too large
+	 */
+	boolean isExceeded() {
+		return exceeded;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int read = super.read();
+		if (read != -1) count(1);
+		return read;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int read = super.read(buffer, offset, length);
+		if (read > 0) count(read);
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Count bytes read from the upload
+	 * @param bytes	Number of bytes read
+	 * @throws IOException If the upload has gone over its limit
+	 */
+	private void count(long bytes) throws IOException {
+		remaining -= bytes;
+		if (remaining < 0) {
+			exceeded = true;
+			throw new IOException("The upload is larger than the bytes reserved for it");
+		}
+	}
+}
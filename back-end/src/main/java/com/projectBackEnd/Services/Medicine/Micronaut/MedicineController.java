@@ -4,10 +4,12 @@ import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 
 import java.net.URI;
 import java.util.List;
 
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.Services.Medicine.Hibernate.Medicine;
 import main.java.com.projectBackEnd.Services.Medicine.Hibernate.MedicineManager;
 import main.java.com.projectBackEnd.Services.Medicine.Hibernate.MedicineManagerInterface;
@@ -20,6 +22,7 @@ import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
  * It provides HTTP requests for each of the queries that need to be made to add, remove, update and retrieve
  * medicines from the database.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/medicines")
 public class MedicineController {
 
@@ -15,7 +15,8 @@ import java.util.Date;
  *    Inspiration : https://examples.javacodegeeks.com/enterprise-java/hibernate/hibernate-annotations-example/
  */
 @Entity
-@Table(name = News.TABLENAME, uniqueConstraints = {@UniqueConstraint(columnNames = {News.SLUG})})
+@Table(name = News.TABLENAME, uniqueConstraints = {@UniqueConstraint(columnNames = {News.SLUG})},
+        indexes = {@Index(name = News.ORDER_INDEX, columnList = News.ORDER_COLUMNS)})
 public class News implements TableEntity<News> {
 
     // 'News' database table name and attributes
@@ -29,6 +30,10 @@ public class News implements TableEntity<News> {
     private static final String CONTENT = "Content";
     static final String SLUG = "Slug";
 
+    // Index backing the display order of the news feed (the primary key is implicitly appended by InnoDB)
+    static final String ORDER_INDEX = "News_Display_Order";
+    static final String ORDER_COLUMNS = URGENT + " DESC, " + PINNED + " DESC, " + DATE + " DESC";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = ID, nullable = false)
@@ -50,8 +55,7 @@ public class News implements TableEntity<News> {
     private String content;
 
     @NotNull
-    @Type(type="text")
-    @Column(name = SLUG, nullable = false, unique = true)
+    @Column(name = SLUG, nullable = false, unique = true, length = 255)
     private String slug;
 
     @NotNull
@@ -4,12 +4,11 @@ import main.java.com.projectBackEnd.DuplicateKeysException;
 import main.java.com.projectBackEnd.EntityManager;
 import main.java.com.projectBackEnd.HibernateUtility;
 import main.java.com.projectBackEnd.InvalidFieldsException;
+import org.hibernate.query.Query;
+import org.hibernate.type.IntegerType;
 
 import javax.persistence.PersistenceException;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 
 /**
@@ -22,6 +21,9 @@ public class NewsManager extends EntityManager implements NewsManagerInterface {
 
     private static NewsManagerInterface newsManager;
 
+    // Display order of the news feed, backed by the News_Display_Order index
+    private static final String DISPLAY_ORDER = " order by n.urgent desc, n.pinned desc, n.date desc, n.primaryKey";
+
     /**
      * Default private constructor (Singleton design pattern)
      */
@@ -84,21 +86,67 @@ public class NewsManager extends EntityManager implements NewsManagerInterface {
     /**
      * Retrieve News object corresponding to input slug from database
      * @param slug  Slug of object to find in database
-     * @return first news object with input slug ; else null
+     * @return news object with input slug ; else null
      */
     public News getNewsBySlug(String slug) {
-        List<News> matches = getAllNews().stream().filter(p -> p.getSlug().equals(slug)).collect(Collectors.toList());
-        return matches.size()>= 1 ? matches.get(0) : null;
+        if (slug == null) return null;
+        return runTransaction(session -> session.createQuery("from News n where n.slug = :slug", News.class)
+                .setParameter("slug", slug)
+                .uniqueResultOptional()
+                .orElse(null), null);
+    }
+
+
+    /**
+     * Check whether a news article other than the given one already uses a slug
+     * @param slug          Slug to look for
+     * @param excludedKey   Primary key of the article to ignore, or null to consider every article
+     * @return true if another article has this slug ; else false
+     */
+    private boolean slugExists(String slug, Integer excludedKey) {
+        Long count = runTransaction(session -> session.createQuery("select count(n) from News n "
+                + "where n.slug = :slug and (:key is null or n.primaryKey <> :key)", Long.class)
+                .setParameter("slug", slug)
+                .setParameter("key", excludedKey, IntegerType.INSTANCE)
+                .uniqueResult(), 0L);
+        return count > 0;
     }
 
 
     /**
      * Get list of all the News objects stored in News table of the database
-     * @return list of all News objects in database
+     * @return list of all News objects in database, in display order
      */
     public List<News> getAllNews() {
-        List<News> allNews = super.getAll();
-        return sort(allNews);
+        return getNews(0, 0);
+    }
+
+
+    /**
+     * Get a page of the News objects stored in the database, ordered by the database by most recent date, in the
+     * following order : urgent and pinned, urgent only, pinned only, neither pinned nor urgent.
+     * Articles published the same day keep the order in which they were added.
+     * @param limit     Maximum number of articles to return, 0 (or less) for no limit
+     * @param offset    Number of articles to skip from the start of the list
+     * @return list of at most limit News objects, in display order
+     */
+    public List<News> getNews(int limit, int offset) {
+        return runTransaction(session ->
+                page(session.createQuery("from News n" + DISPLAY_ORDER, News.class), limit, offset), null);
+    }
+
+
+    /**
+     * Get a page of summaries of the News stored in the database, in the same order as getNews.
+     * Summaries hold every attribute except the content, which is not loaded from the database.
+     * @param limit     Maximum number of summaries to return, 0 (or less) for no limit
+     * @param offset    Number of summaries to skip from the start of the list
+     * @return list of at most limit NewsSummary objects, in display order
+     */
+    public List<NewsSummary> getNewsSummaries(int limit, int offset) {
+        return runTransaction(session -> page(session.createQuery("select new " + NewsSummary.class.getName()
+                + "(n.primaryKey, n.date, n.description, n.slug, n.title, n.urgent, n.pinned) from News n"
+                + DISPLAY_ORDER, NewsSummary.class), limit, offset), null);
     }
 
 
@@ -120,31 +168,17 @@ public class NewsManager extends EntityManager implements NewsManagerInterface {
 
 
     /**
-     * Sort all the News from the database by highest (most recent) date, in the following order :
-     * Urgent and pinned, urgent only, pinned only, neither pinned nor urgent.
-     * @return sorted list of news
+     * Restrict a query to a page of its results and run it
+     * @param query     Query to run
+     * @param limit     Maximum number of results, 0 (or less) for no limit
+     * @param offset    Number of results to skip
+     * @param <R>       Type of the results
+     * @return the page of results
      */
-    private static List<News> sort(List<News> all) {
-        // Get pinned AND urgent
-        Stream<News> pinnedAndUrgent = all.stream().filter(n -> n.isPinned() && n.isUrgent())
-                .sorted(Comparator.comparing(News::getDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        // Get urgent only
-        Stream<News> urgentDates = all.stream().filter(n -> !n.isPinned() && n.isUrgent())
-                .sorted(Comparator.comparing(News::getDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        // Get pinned only
-        Stream<News> pinnedDates = all.stream().filter(n -> n.isPinned() && !n.isUrgent())
-                .sorted(Comparator.comparing(News::getDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        // Get neither pinned nor urgent
-        Stream<News> regular = all.stream().filter(n -> !n.isPinned() && !n.isUrgent())
-                .sorted(Comparator.comparing(News::getDate, Comparator.nullsLast(Comparator.reverseOrder())));
-
-        // Concatenate all lists together to make sorted list
-        List<News> sorted = Stream.concat(Stream.concat(Stream.concat(pinnedAndUrgent, urgentDates), pinnedDates), regular)
-                .collect(Collectors.toList());
-
-        //This method should not be broken down due to efficiency concerns - other sort algorithms were raced
-        //Against it sorting lists of 500,000 randomly generated news objects and this was fastest.
-        return sorted;
+    private static <R> List<R> page(Query<R> query, int limit, int offset) {
+        query.setFirstResult(Math.max(offset, 0));
+        if (limit > 0) query.setMaxResults(limit);
+        return query.getResultList();
     }
 
     /**
@@ -169,8 +203,7 @@ public class NewsManager extends EntityManager implements NewsManagerInterface {
      */
     private void checkUpdateValidity(News news) throws InvalidFieldsException, DuplicateKeysException {
         checkFieldValidity(news);
-        News newsMatch = getNewsBySlug(news.getSlug());
-        if (newsMatch != null && !newsMatch.getPrimaryKey().equals(news.getPrimaryKey()))
+        if (slugExists(news.getSlug(), news.getPrimaryKey()))
             throw new DuplicateKeysException("Slug already exists: " + news.getSlug());
     }
 
@@ -182,7 +215,7 @@ public class NewsManager extends EntityManager implements NewsManagerInterface {
      */
     private void checkAddValidity(News news) throws InvalidFieldsException, DuplicateKeysException {
         checkFieldValidity(news);
-        if (getNewsBySlug(news.getSlug()) != null)
+        if (slugExists(news.getSlug(), null))
             throw new DuplicateKeysException("Slug already exists: " + news.getSlug());
     }
 }
\ No newline at end of file
@@ -21,6 +21,10 @@ public interface NewsManagerInterface {
 
     List<News> getAllNews();
 
+    List<News> getNews(int limit, int offset);
+
+    List<NewsSummary> getNewsSummaries(int limit, int offset);
+
     void delete(Integer pk);
 
     void deleteAll();
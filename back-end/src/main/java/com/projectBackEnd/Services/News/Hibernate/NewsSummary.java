@@ -0,0 +1,104 @@
+package main.java.com.projectBackEnd.Services.News.Hibernate;
+
+import java.util.Date;
+
+/**
+ * NewsSummary is a read-only view of a News article without its content, used for lists of news.
+ * It is built directly by the database query, so the content column is never loaded.
+ */
+public class NewsSummary {
+
+    private final Integer primaryKey;
+    private final Date date;
+    private final String description;
+    private final String slug;
+    private final String title;
+    private final boolean urgent;
+    private final boolean pinned;
+
+
+    /**
+     * Main constructor, called by the summary query
+     * @param primaryKey    Primary key of the News article
+     * @param date          Date of publication of the article
+     * @param description   Description of the article
+     * @param slug          Slug of the article
+     * @param title         Title of the article
+     * @param urgent        Whether the article is urgent
+     * @param pinned        Whether the article is pinned
+     */
+    public NewsSummary(Integer primaryKey, Date date, String description, String slug, String title,
+                       boolean urgent, boolean pinned) {
+        this.primaryKey = primaryKey;
+        this.date = date;
+        this.description = description;
+        this.slug = slug;
+        this.title = title;
+        this.urgent = urgent;
+        this.pinned = pinned;
+    }
+
+
+    /**
+     * Get primary key of the article
+     * @return primary key value
+     */
+    public Integer getPrimaryKey() {
+        return primaryKey;
+    }
+
+
+    /**
+     * Get date of the article
+     * @return date value
+     */
+    public Date getDate() {
+        return date;
+    }
+
+
+    /**
+     * Get description of the article
+     * @return description value
+     */
+    public String getDescription() {
+        return description;
+    }
+
+
+    /**
+     * Get slug of the article
+     * @return slug value
+     */
+    public String getSlug() {
+        return slug;
+    }
+
+
+    /**
+     * Get title of the article
+     * @return title value
+     */
+    public String getTitle() {
+        return title;
+    }
+
+
+    /**
+     * Get whether the article is urgent
+     * @return urgent value
+     */
+    public boolean isUrgent() {
+        return urgent;
+    }
+
+
+    /**
+     * Get whether the article is pinned
+     * @return pinned value
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+
+}
@@ -3,14 +3,17 @@ package main.java.com.projectBackEnd.Services.News.Micronaut;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 
 import java.util.List;
 
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.DuplicateKeysException;
 import main.java.com.projectBackEnd.InvalidFieldsException;
 import main.java.com.projectBackEnd.Services.News.Hibernate.News;
 import main.java.com.projectBackEnd.Services.News.Hibernate.NewsManager;
 import main.java.com.projectBackEnd.Services.News.Hibernate.NewsManagerInterface;
+import main.java.com.projectBackEnd.Services.News.Hibernate.NewsSummary;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 
@@ -22,6 +25,7 @@ import static main.java.com.projectBackEnd.URLLocation.location;
  * It provides HTTP requests for each of the queries that need to be made to add, remove, update and retrieve
  * news articles from the database.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/news")
 public class NewsController {
 
@@ -30,12 +34,38 @@ public class NewsController {
 
 
     /**
-     * Get the list of all news stored in the database via an HTTP Get request
-     * @return List of all the News in the database
+     * Get the list of news stored in the database via an HTTP Get request, one page at a time if a limit is given
+     * @param limit     Maximum number of news to return, 0 for all of them
+     * @param offset    Number of news to skip from the start of the list
+     * @return List of the News in the database, in display order
      */
     @Get("/")
-    public List<News> getAllNews(){
-        return newsManager.getAllNews();
+    public List<News> getAllNews(@QueryValue(defaultValue = "0") int limit, @QueryValue(defaultValue = "0") int offset){
+        return newsManager.getNews(limit, offset);
+    }
+
+
+    /**
+     * Get the list of news summaries (every attribute but the content) via an HTTP Get request, for news lists
+     * @param limit     Maximum number of summaries to return, 0 for all of them
+     * @param offset    Number of summaries to skip from the start of the list
+     * @return List of the NewsSummary of the News in the database, in display order
+     */
+    @Get("/summaries")
+    public List<NewsSummary> getNewsSummaries(@QueryValue(defaultValue = "0") int limit,
+                                              @QueryValue(defaultValue = "0") int offset){
+        return newsManager.getNewsSummaries(limit, offset);
+    }
+
+
+    /**
+     * Get the full news article corresponding to the given slug via an HTTP Get request
+     * @param slug  Slug of the news
+     * @return News with the specified slug (not found if there is none)
+     */
+    @Get("/{slug}")
+    public News getBySlug(String slug){
+        return newsManager.getNewsBySlug(slug);
     }
 
 
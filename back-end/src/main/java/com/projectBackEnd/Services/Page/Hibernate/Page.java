@@ -40,8 +40,7 @@ public class Page implements TableEntity<Page> {
     @JoinColumn(name = SITE, nullable = false)
     private Site site;
 
-    @Column(name = SLUG, nullable = false)
-    @Type(type="text")
+    @Column(name = SLUG, nullable = false, length = 255)
     private String slug;
 
     @Column(name = INDEX, nullable = false)
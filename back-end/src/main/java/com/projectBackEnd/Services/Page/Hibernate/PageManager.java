@@ -5,11 +5,12 @@ import main.java.com.projectBackEnd.InvalidFieldsException;
 import main.java.com.projectBackEnd.Services.Site.Hibernate.Site;
 import main.java.com.projectBackEnd.EntityManager;
 import main.java.com.projectBackEnd.HibernateUtility;
+import org.hibernate.type.IntegerType;
 
 import javax.persistence.PersistenceException;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 
 /**
@@ -83,23 +84,74 @@ public class PageManager extends EntityManager implements PageManagerInterface {
     /**
      * Get all Pages belonging to the given site from the database
      * @param siteSlug  Slug of the parent site
-     * @return List of pages belonging to parent site
+     * @return List of pages belonging to parent site, ordered by index
      */
     public List<Page> getAllPagesOfSite(String siteSlug) {
-        return getAllPages().stream().filter(p -> p.getSite().getSlug().equals(siteSlug))
-                .sorted(Comparator.comparingInt(Page::getIndex)).collect(Collectors.toList());
+        if (siteSlug == null) return new ArrayList<>();
+        return runTransaction(session -> session.createQuery("select p from Page p join fetch p.site s "
+                + "where s.slug = :siteSlug order by p.index, p.primaryKey", Page.class)
+                .setParameter("siteSlug", siteSlug)
+                .getResultList(), null);
     }
 
     /**
      * Retrieve Page associated to input site and slug in the database
      * @param siteSlug  Slug of the parent Site
      * @param slug      Slug of the Page
-     * @return found Page
+     * @return found Page ; else null
      */
     public Page getPageBySiteAndSlug(String siteSlug, String slug) {
-        List<Page> matches = getAllPages().stream().filter(p -> p.getSite().getSlug().equals(siteSlug) && p.getSlug().equals(slug))
-                .sorted(Comparator.comparingInt(Page::getIndex)).collect(Collectors.toList());
-        return matches.size()>= 1 ? matches.get(0) : null;
+        if (siteSlug == null || slug == null) return null;
+        return runTransaction(session -> session.createQuery("select p from Page p join fetch p.site s "
+                + "where s.slug = :siteSlug and p.slug = :slug", Page.class)
+                .setParameter("siteSlug", siteSlug)
+                .setParameter("slug", slug)
+                .uniqueResultOptional()
+                .orElse(null), null);
+    }
+
+
+    /**
+     * Check whether a page other than the given one already uses a slug in a site
+     * @param siteSlug      Slug of the parent Site
+     * @param slug          Slug of the Page
+     * @param excludedKey   Primary key of the page to ignore, or null to consider every page
+     * @return true if another page of the site has this slug ; else false
+     */
+    private boolean pageExists(String siteSlug, String slug, Integer excludedKey) {
+        Long count = runTransaction(session -> session.createQuery("select count(p) from Page p join p.site s "
+                + "where s.slug = :siteSlug and p.slug = :slug and (:key is null or p.primaryKey <> :key)", Long.class)
+                .setParameter("siteSlug", siteSlug)
+                .setParameter("slug", slug)
+                .setParameter("key", excludedKey, IntegerType.INSTANCE)
+                .uniqueResult(), 0L);
+        return count > 0;
+    }
+
+
+    /**
+     * Set the index of several pages of a site at once. The pages are fetched together and updated in a single
+     * transaction, so either every index is changed or none is.
+     * @param siteSlug  Slug of the parent Site
+     * @param indices   New index of each page, by page slug
+     * @return true if every page was found and updated ; false if a page does not exist or the update failed
+     * @throws InvalidFieldsException If the site slug, a page slug or an index is null
+     */
+    public boolean updateIndices(String siteSlug, Map<String, Integer> indices) throws InvalidFieldsException {
+        if (siteSlug == null || indices.containsKey(null) || indices.containsValue(null))
+            throw new InvalidFieldsException("Invalid fields");
+        if (indices.isEmpty()) return true;
+        return runTransaction(session -> {
+            List<Page> pages = session.createQuery("select p from Page p join fetch p.site s "
+                    + "where s.slug = :siteSlug and p.slug in (:slugs)", Page.class)
+                    .setParameter("siteSlug", siteSlug)
+                    .setParameterList("slugs", indices.keySet())
+                    .getResultList();
+            if (pages.size() != indices.size()) return false;
+            //Changes are flushed on commit as batched updates
+            for (Page page : pages) page.setIndex(indices.get(page.getSlug()));
+            return true;
+        }, false);
     }
 
 
@@ -131,7 +183,7 @@ public class PageManager extends EntityManager implements PageManagerInterface {
      */
     private void checkAddValidity(Page page) throws InvalidFieldsException, DuplicateKeysException {
         checkFieldValidity(page);
-        if (getPageBySiteAndSlug(page.getSite().getSlug(), page.getSlug()) != null)
+        if (pageExists(page.getSite().getSlug(), page.getSlug(), null))
             throw new DuplicateKeysException("Page with slug: " + page.getSlug() + " already exists in site." );
     }
 
@@ -143,8 +195,7 @@ public class PageManager extends EntityManager implements PageManagerInterface {
      */
     private void checkUpdateValidity(Page page) throws InvalidFieldsException, DuplicateKeysException {
         checkFieldValidity(page);
-        Page pageMatch = getPageBySiteAndSlug(page.getSite().getSlug(), page.getSlug());
-        if (pageMatch != null && !pageMatch.getPrimaryKey().equals(page.getPrimaryKey()))
+        if (pageExists(page.getSite().getSlug(), page.getSlug(), page.getPrimaryKey()))
             throw new DuplicateKeysException("Page with slug: " + page.getSlug() + " already exists in site.");
     }
 }
\ No newline at end of file
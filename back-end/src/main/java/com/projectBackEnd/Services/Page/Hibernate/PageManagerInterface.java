@@ -5,6 +5,7 @@ import main.java.com.projectBackEnd.InvalidFieldsException;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 /**
  *  Methods used by PageManager for database queries with the Page table.
@@ -22,6 +23,8 @@ public interface PageManagerInterface {
 
     Page getPageBySiteAndSlug(String siteSlug, String slug);
 
+    boolean updateIndices(String siteSlug, Map<String, Integer> indices) throws InvalidFieldsException;
+
     List<Page> getAllPages();
 
     void delete(Serializable primaryKey);
@@ -3,7 +3,9 @@ package main.java.com.projectBackEnd.Services.Page.Micronaut;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.DuplicateKeysException;
 import main.java.com.projectBackEnd.InvalidFieldsException;
 import main.java.com.projectBackEnd.Services.Page.Hibernate.Page;
@@ -13,7 +15,9 @@ import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static main.java.com.projectBackEnd.URLLocation.location;
 
@@ -24,6 +28,7 @@ import static main.java.com.projectBackEnd.URLLocation.location;
  * It provides HTTP requests for each of the queries that need to be made to add, remove, update and retrieve
  * pages from the database.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/sites")
 public class PageController {
 
@@ -118,15 +123,13 @@ public class PageController {
 
         if(!sessionManager.verifySession(session)) return HttpResponse.unauthorized();
 
-        for (PagePatchCommand p : patchCommandList) {
-            String slug = p.getSlug();
-            Page page = pageManager.getPageBySiteAndSlug(name, slug);
-            page.setIndex(p.getIndex());
-            try {
-                pageManager.update(page);
-            } catch (DuplicateKeysException|InvalidFieldsException e) {
-                return HttpResponse.badRequest(e.getMessage());
-            }
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        for (PagePatchCommand p : patchCommandList) indices.put(p.getSlug(), p.getIndex());
+        try {
+            if (!pageManager.updateIndices(name, indices))
+                return HttpResponse.badRequest("Pages could not be found in site: " + name);
+        } catch (InvalidFieldsException e) {
+            return HttpResponse.badRequest(e.getMessage());
         }
 
         return HttpResponse.noContent();
@@ -5,23 +5,32 @@ import main.java.com.projectBackEnd.TokenGenerator;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.io.Serializable;
+import java.sql.Timestamp;
 
 
 /**
  * Link defines methods for getting token and PrimaryKey from the database.
+ * Each link records when it was created and when it expires : expired links can no longer be used and are
+ * removed by the ResetLinkReaper.
  * This class implements TableEntity.
  *
  */
 @Entity
-@Table(name = Link.TABLENAME)
+@Table(name = Link.TABLENAME, indexes = {@Index(name = Link.EXPIRY_INDEX, columnList = Link.EXPIRY)})
 public class Link implements TableEntity<Link> {
 	
 	// 'Links' database table name and attributes
 	final static String TABLENAME = "Links";
 	private final static String TOKEN = "token";
 	private final static String EMAIL = "email";
+	private final static String CREATED = "created";
+	final static String EXPIRY = "expiry";
+
+	// Index backing the search of expired links by the ResetLinkReaper
+	final static String EXPIRY_INDEX = "Links_Expiry";
 	
 	// The primary key token, used for authentication
 	@Id @Column(name = Link.TOKEN)
@@ -29,6 +38,12 @@ public class Link implements TableEntity<Link> {
 
 	@Column(name = Link.EMAIL)
 	private String email;
+
+	@Column(name = Link.CREATED)
+	private Timestamp created;
+
+	@Column(name = Link.EXPIRY)
+	private Timestamp expiry;
 	
 	/**
 	 * Default constructor
@@ -37,10 +52,13 @@ public class Link implements TableEntity<Link> {
 	
 	/**
 	 * Constructor for class Link
-	 * @param email user's email
+	 * @param email 	user's email
+	 * @param lifetime	Time for which the link can be used (seconds)
 	 */
-	Link(String email){
+	public Link(String email, int lifetime){
 		this.email = email;
+		this.created = new Timestamp(System.currentTimeMillis());
+		this.expiry = new Timestamp(created.getTime() + lifetime * 1000L);
 		token = generateToken();	
 	}
 
@@ -60,6 +78,31 @@ public class Link implements TableEntity<Link> {
 		return email;
 	}
 
+	/**
+	 * Get creation time
+	 * @return time the link was created
+	 */
+	public Timestamp getCreated(){
+		return created;
+	}
+
+	/**
+	 * Get expiry time
+	 * @return time after which the link can no longer be used
+	 */
+	public Timestamp getExpiry(){
+		return expiry;
+	}
+
+	/**
+	 * Check whether the link has expired. Links created before expiry times were recorded have none, and
+	 * are treated as expired.
+	 * @return true if the link can no longer be used
+	 */
+	public boolean isExpired(){
+		return expiry == null || expiry.getTime() <= System.currentTimeMillis();
+	}
+
 	/**
 	 * Get PrimaryKey
 	 * @return token(PrimaryKey of table Link)
@@ -78,19 +121,18 @@ public class Link implements TableEntity<Link> {
     public Link copy(Link linkToCopy){
 		token = linkToCopy.getToken();
 		email = linkToCopy.getEmail();
+		created = linkToCopy.getCreated();
+		expiry = linkToCopy.getExpiry();
 		return this;
 	}
 
 
 	/**
-	 * Generate a random unique Token (50 characters Long)
+	 * Generate a random unique Token (50 characters Long). Tokens are long enough to be unique without checking
+	 * the Links table.
 	 * @return Token String
 	 */
 	private String generateToken(){
-		String token;
-		do {
-			token = TokenGenerator.generateToken(50, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz");
-		} while(ResetLinkManager.getResetLinkManager().exist(token));
-		return token;
+		return TokenGenerator.generateToken(50, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz");
 	}
 }
@@ -2,6 +2,8 @@ package main.java.com.projectBackEnd.Services.ResetLinks;
 import main.java.com.projectBackEnd.EntityManager;
 import main.java.com.projectBackEnd.HibernateUtility;
 import main.java.com.projectBackEnd.Services.User.Hibernate.UserManager;
+
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -11,6 +13,7 @@ import java.util.List;
  */
 public class ResetLinkManager extends EntityManager implements ResetLinkManagerInterface{
 	private static ResetLinkManagerInterface resetLinkManager;
+	private static final int LIFETIME = 3600; //Amount of time for which a link can be used (seconds)
 
 	/**
 	 * Private Constructor of ResetLinkManager, implementing the singleton design pattern
@@ -43,7 +46,7 @@ public class ResetLinkManager extends EntityManager implements ResetLinkManagerI
 	 */
 	public String create(String email) throws EmailNotExistException{
 		if(UserManager.getUserManager().verifyEmail(email)){
-			Link reset = new Link(email);
+			Link reset = new Link(email, LIFETIME);
 			insertTuple(reset);
 			return reset.getToken();
 		}
@@ -52,18 +55,13 @@ public class ResetLinkManager extends EntityManager implements ResetLinkManagerI
 	}
 	
 	/**
-	 * Find the corresponding email according to the token input from all links.
+	 * Find the email of the link with the given token
 	 * @param token The corresponding token
-	 * @return email matched
+	 * @return email matched ; else null if there is no such link or it has expired
 	 */
 	public String getEmail(String token){
-		List<Link> links = getAll();
-		for(Link l: links){
-			if(l.getToken().equals(token)){
-				return l.getEmail();
-			}
-		}
-		return null;
+		Link link = getLink(token);
+		return (link == null) ? null : link.getEmail();
 	}
 	
 	/**
@@ -71,29 +69,77 @@ public class ResetLinkManager extends EntityManager implements ResetLinkManagerI
 	 * @param token the token of link wanted to be deleted
 	 */
 	public void delete(String token){
-		List<Link> links = getAll();
-		for(Link l: links){
-			if(l.getToken().equals(token)){
-				delete(l);
-				break;
-			}
-		}
-
+		if(token == null) return;
+		runTransaction(session -> session.createQuery("delete from Link l where l.token = :token")
+				.setParameter("token", token)
+				.executeUpdate(), 0);
 	}
 	
 	/**
-	 * Check if a Link exists
+	 * Check if a Link exists and has not expired
 	 * @param token the token of link wanted to be checked
 	 * @return boolean result
 	 */
 	public boolean exist(String token){
-		List<Link> links = getAll();
-		for(Link l: links){
-			if(l.getToken().equals(token)){
-				return true;
-			}
-		}
-		return false;
+		return getLink(token) != null;
+	}
+
+	/**
+	 * Find the link with the given token, unless it has expired
+	 * @param token the token of the link
+	 * @return the link ; else null
+	 */
+	private Link getLink(String token){
+		Link link = (token == null) ? null : (Link) getByPrimaryKey(token);
+		return (link == null || link.isExpired()) ? null : link;
+	}
+
+	/**
+	 * Use up a Link : find its email and delete it in a single transaction. When the same token is consumed
+	 * concurrently, only the call whose delete removed the row gets the email, so a link can only be used once.
+	 * @param token the token of the link to consume
+	 * @return email of the consumed link ; else null if there is no such link, it has expired (it is deleted
+	 * all the same) or it was consumed meanwhile
+	 */
+	public String consume(String token){
+		if(token == null) return null;
+		return runTransaction(session -> {
+			Link link = session.get(Link.class, token);
+			if(link == null) return null;
+			int deleted = session.createQuery("delete from Link l where l.token = :token")
+					.setParameter("token", token)
+					.executeUpdate();
+			return (deleted == 1 && !link.isExpired()) ? link.getEmail() : null;
+		}, null);
+	}
+
+	/**
+	 * Delete a batch of expired links
+	 * @param batchSize Maximum number of links to delete
+	 * @return number of links deleted
+	 */
+	public int deleteExpiredLinks(int batchSize){
+
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		return runTransaction(session -> {
+			List<String> expired = session.createQuery("select l.token from Link l where l.expiry is null or l.expiry <= :now", String.class)
+					.setParameter("now", now)
+					.setMaxResults(batchSize)
+					.getResultList();
+			if(expired.isEmpty()) return 0;
+			return session.createQuery("delete from Link l where l.token in (:tokens)")
+					.setParameterList("tokens", expired)
+					.executeUpdate();
+		}, 0);
+
+	}
+
+	/**
+	 * Count the links which have not been used or purged yet
+	 * @return number of links in the Links table
+	 */
+	public long countLinks(){
+		return runTransaction(session -> session.createQuery("select count(l) from Link l", Long.class).uniqueResult(), 0L);
 	}
 
 }
@@ -9,4 +9,7 @@ public interface ResetLinkManagerInterface{
 	String create(String email) throws EmailNotExistException;
 	String getEmail(String token);
 	boolean exist(String token);
+	String consume(String token);
+	int deleteExpiredLinks(int batchSize);
+	long countLinks();
 }
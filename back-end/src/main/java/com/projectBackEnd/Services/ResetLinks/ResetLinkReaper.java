@@ -0,0 +1,105 @@
+package main.java.com.projectBackEnd.Services.ResetLinks;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * ResetLinkReaper is a background job which periodically removes expired password reset links from the Links table,
+ * in batches of set-based deletes, and keeps track of how many links are still outstanding.
+ *
+ * The interval, batch size and number of batches per run are read from the 'links.reaper' configuration.
+ */
+@Singleton
+public class ResetLinkReaper {
+
+	private final ResetLinkManagerInterface linkManager = ResetLinkManager.getResetLinkManager();
+
+	private final int batchSize;
+	private final int maxBatches;
+
+	// Metrics on the links purged by this reaper, and the links left after the last run
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong totalPurged = new AtomicLong();
+	private volatile int lastPurged;
+	private volatile long outstandingLinks;
+
+
+	/**
+	 * Main constructor
+	 * @param batchSize		Maximum number of links removed by a single delete
+	 * @param maxBatches	Maximum number of deletes issued in one run
+	 */
+	public ResetLinkReaper(@Value("${links.reaper.batch-size:500}") int batchSize,
+						   @Value("${links.reaper.max-batches:100}") int maxBatches) {
+
+		this.batchSize = batchSize;
+		this.maxBatches = maxBatches;
+
+	}
+
+
+	/**
+	 * Delete expired links, batch after batch, until none are left or the batch limit is reached, then count the
+	 * links which remain
+	 * @return number of links deleted during this run
+	 */
+	@Scheduled(fixedDelay = "${links.reaper.interval:15m}", initialDelay = "${links.reaper.initial-delay:1m}")
+	public int purgeExpiredLinks() {
+
+		int purged = 0;
+		int deleted;
+		int batches = 0;
+		do {
+			deleted = linkManager.deleteExpiredLinks(batchSize);
+			purged += deleted;
+		} while(deleted == batchSize && ++batches < maxBatches);
+
+		runs.incrementAndGet();
+		totalPurged.addAndGet(purged);
+		lastPurged = purged;
+		outstandingLinks = linkManager.countLinks();
+		return purged;
+
+	}
+
+
+	/**
+	 * Get the number of runs completed by the reaper
+	 * @return number of runs
+	 */
+	public long getRuns() {
+		return runs.get();
+	}
+
+
+	/**
+	 * Get the number of links deleted by the last run
+	 * @return links deleted by the last run
+	 */
+	public int getLastPurged() {
+		return lastPurged;
+	}
+
+
+	/**
+	 * Get the number of links deleted since the reaper was created
+	 * @return total links deleted
+	 */
+	public long getTotalPurged() {
+		return totalPurged.get();
+	}
+
+
+	/**
+	 * Get the number of links left in the Links table after the last run
+	 * @return outstanding links
+	 */
+	public long getOutstandingLinks() {
+		return outstandingLinks;
+	}
+
+}
@@ -1,12 +1,13 @@
 package main.java.com.projectBackEnd.Services.Session;
 
 import main.java.com.projectBackEnd.TableEntity;
+import main.java.com.projectBackEnd.TokenGenerator;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
-import java.util.Random;
 import java.sql.Timestamp;
 
 import java.io.Serializable;
@@ -20,16 +21,19 @@ import java.io.Serializable;
  * Inspiration : https://examples.javacodegeeks.com/enterprise-java/hibernate/hibernate-annotations-example/
  */
 @Entity
-@Table(name = Session.TABLENAME)
+@Table(name = Session.TABLENAME, indexes = {@Index(name = Session.TIMEOUT_INDEX, columnList = Session.TIMEOUT)})
 public class Session implements TableEntity<Session> {
 
 	// 'Session' database table name and columns
 	final static String TABLENAME = "Sessions";
 	private final static String TOKEN = "Token";
 	private final static String DATE = "Date";
-	private final static String TIMEOUT = "Timeout";
+	final static String TIMEOUT = "Timeout";
 	private final static String EMAIL = "Email";
 
+	// Index backing the search of expired sessions by the SessionReaper
+	final static String TIMEOUT_INDEX = "Sessions_Timeout";
+
 
 	// The primary key token, used for authentication
 	@Id
@@ -77,21 +81,12 @@ public class Session implements TableEntity<Session> {
 
 
 	/**
-	 * Generate a token for the session
+	 * Generate a token for the session. Tokens are long enough to be unique without checking the Sessions table.
 	 * @return generated token
 	 */
 	private String generateToken() {
-
-		Random rand = new Random();
-		String s;
-		String alphaNum = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz";
-		do {
-			StringBuilder sb = new StringBuilder();
-			for(int i = 0; i < SessionManager.tokenLength;++i) sb.append(alphaNum.charAt(rand.nextInt(alphaNum.length())));
-			s = sb.toString();
-		} while(s == null || SessionManager.getSessionManager().verifySession(s));
-		return s;
-
+		return TokenGenerator.generateToken(SessionManager.tokenLength,
+				"ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz");
 	}
 
 
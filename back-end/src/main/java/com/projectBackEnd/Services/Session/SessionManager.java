@@ -17,6 +17,11 @@ public class SessionManager extends EntityManager implements SessionManagerInter
 
 	private static SessionManagerInterface sessionManager;
 	public static final int tokenLength = 50;
+	private static final int CACHE_CAPACITY = 10000; //Maximum number of verified tokens remembered
+	private static final long CACHE_TIME_TO_LIVE = 60000; //Longest time a verified token is trusted (milliseconds)
+
+	private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache(CACHE_CAPACITY, CACHE_TIME_TO_LIVE);
+
 	/**
 	 * Private constructor implementing the singleton design pattern
 	 */
@@ -62,15 +67,16 @@ public class SessionManager extends EntityManager implements SessionManagerInter
 	 */
 	public String getEmail(String token) throws NoSessionException {
 
-		List<Session> sessions = getAll();
-		for (Session s: sessions) if(s.getToken().equals(token)) return s.getEmail();
-		throw new NoSessionException("no such session");
+		Session s = (token == null) ? null : (Session) getByPrimaryKey(token);
+		if(s == null) throw new NoSessionException("no such session");
+		return s.getEmail();
 
 	}
 
 
 	/**
-	 * Verify the session corresponding to the given Token
+	 * Verify the session corresponding to the given Token.
+	 * Recently verified tokens are answered from memory, otherwise the session is looked up by its primary key.
 	 * @param token	Primary key of the session
 	 * @return true if the session is open; else false
 	 */
@@ -78,20 +84,14 @@ public class SessionManager extends EntityManager implements SessionManagerInter
 
 		if(token == null || token.length() != tokenLength) return false;
 
-		List<Session> sessions = getAll();
-		Timestamp now;
-		for (Session s: sessions) {
-			if(s.getToken().equals(token)) {
-				now = new Timestamp(System.currentTimeMillis());
-				if(s.getTimeout().after(now)) return true;
-				else {
-					delete(s);
-					return false;
-				}
-			}
-
-		}
-		return false;
+		long now = System.currentTimeMillis();
+		if(verifiedTokens.isValid(token, now)) return true;
+
+		Session s = (Session) getByPrimaryKey(token);
+		if(s == null) return false;
+		if(!s.getTimeout().after(new Timestamp(now))) return false; //Expired rows are removed by the SessionReaper
+		verifiedTokens.put(token, s.getTimeout().getTime(), now);
+		return true;
 	}
 
 
@@ -100,28 +100,60 @@ public class SessionManager extends EntityManager implements SessionManagerInter
 	 * @param token	Primary key 'Token'
 	 */
 	public void terminateSession(String token) {
-		List<Session> sessions = getAll();
-		try {
-			deleteAllPast(getEmail(token));
-		} catch(NoSessionException e) {	/*ignore*/	}
-		for (Session session: sessions) if(session.getToken().equals(token)) delete(session);
+
+		if(token == null) return;
+		verifiedTokens.remove(token);
+		Session session = (Session) getByPrimaryKey(token);
+		if(session == null) return;
+		deleteAllPast(session.getEmail());
+		delete(session);
+
+	}
+
+
+	/**
+	 * Remove all sessions from the database and forget every verified token
+	 */
+	@Override
+	public void deleteAll() {
+		verifiedTokens.clear();
+		super.deleteAll();
+	}
+
+	/**
+	 * Delete up to batchSize sessions which are timed out, using a single set-based delete
+	 * @param batchSize	Maximum number of sessions to delete
+	 * @return number of sessions deleted
+	 */
+	public int deleteExpiredSessions(int batchSize) {
+
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		return runTransaction(session -> {
+			List<String> expired = session.createQuery("select s.token from Session s where s.timeout <= :now", String.class)
+					.setParameter("now", now)
+					.setMaxResults(batchSize)
+					.getResultList();
+			if(expired.isEmpty()) return 0;
+			return session.createQuery("delete from Session s where s.token in (:tokens)")
+					.setParameterList("tokens", expired)
+					.executeUpdate();
+		}, 0);
+
 	}
 
+
 	/**
-	 * Delete all the sessions that are timed out
+	 * Delete all the sessions of the given user that are timed out
 	 * @param email	User email
 	 */
 	private void deleteAllPast(String email){
 
-		List<Session> sessions = getAll();
-		Timestamp now;
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		runTransaction(session -> session.createQuery("delete from Session s where s.email = :email and s.timeout <= :now")
+				.setParameter("email", email)
+				.setParameter("now", now)
+				.executeUpdate(), 0);
 
-		for (Session s: sessions) {
-			if(s.getEmail().equals(email)) {
-				now = new Timestamp(System.currentTimeMillis());
-				if(!s.getTimeout().after(now)) delete(s);
-			}
-		}
 	}
 
 
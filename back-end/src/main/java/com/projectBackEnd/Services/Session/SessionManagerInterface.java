@@ -14,5 +14,7 @@ public interface SessionManagerInterface {
 
 	void terminateSession(String token);
 
+	int deleteExpiredSessions(int batchSize);
+
 }
 
@@ -0,0 +1,93 @@
+package main.java.com.projectBackEnd.Services.Session;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * SessionReaper is a background job which periodically removes timed out sessions from the Sessions table.
+ * Expired sessions are deleted in batches of set-based deletes so that the table does not grow without bound.
+ *
+ * The interval, batch size and number of batches per run are read from the 'sessions.reaper' configuration.
+ */
+@Singleton
+public class SessionReaper {
+
+	private final SessionManagerInterface sessionManager = SessionManager.getSessionManager();
+
+	private final int batchSize;
+	private final int maxBatches;
+
+	// Metrics on the rows purged by this reaper
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong totalPurged = new AtomicLong();
+	private volatile int lastPurged;
+
+
+	/**
+	 * Main constructor
+	 * @param batchSize		Maximum number of sessions removed by a single delete
+	 * @param maxBatches	Maximum number of deletes issued in one run
+	 */
+	public SessionReaper(@Value("${sessions.reaper.batch-size:500}") int batchSize,
+						 @Value("${sessions.reaper.max-batches:100}") int maxBatches) {
+
+		this.batchSize = batchSize;
+		this.maxBatches = maxBatches;
+
+	}
+
+
+	/**
+	 * Delete timed out sessions, batch after batch, until none are left or the batch limit is reached
+	 * @return number of sessions deleted during this run
+	 */
+	@Scheduled(fixedDelay = "${sessions.reaper.interval:5m}", initialDelay = "${sessions.reaper.initial-delay:1m}")
+	public int purgeExpiredSessions() {
+
+		int purged = 0;
+		int deleted;
+		int batches = 0;
+		do {
+			deleted = sessionManager.deleteExpiredSessions(batchSize);
+			purged += deleted;
+		} while(deleted == batchSize && ++batches < maxBatches);
+
+		runs.incrementAndGet();
+		totalPurged.addAndGet(purged);
+		lastPurged = purged;
+		return purged;
+
+	}
+
+
+	/**
+	 * Get the number of runs completed by the reaper
+	 * @return number of runs
+	 */
+	public long getRuns() {
+		return runs.get();
+	}
+
+
+	/**
+	 * Get the number of sessions deleted by the last run
+	 * @return sessions deleted by the last run
+	 */
+	public int getLastPurged() {
+		return lastPurged;
+	}
+
+
+	/**
+	 * Get the number of sessions deleted since the reaper was created
+	 * @return total sessions deleted
+	 */
+	public long getTotalPurged() {
+		return totalPurged.get();
+	}
+
+}
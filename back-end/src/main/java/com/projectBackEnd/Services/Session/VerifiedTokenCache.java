@@ -0,0 +1,84 @@
+package main.java.com.projectBackEnd.Services.Session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * VerifiedTokenCache keeps a bounded, least-recently-used record of session tokens which have recently been
+ * verified against the database, along with the time until which they can be trusted without a new lookup.
+ *
+ * An entry never outlives the timeout of its session, and is also capped to a maximum time to live so that
+ * sessions terminated elsewhere are only trusted for a short while.
+ */
+class VerifiedTokenCache {
+
+	private final int capacity;
+	private final long maxTimeToLive;
+	private final Map<String, Long> expiries;
+
+
+	/**
+	 * Main constructor
+	 * @param capacity		Maximum number of tokens remembered at once
+	 * @param maxTimeToLive	Longest time (in milliseconds) a token is trusted before it is checked again
+	 */
+	VerifiedTokenCache(int capacity, long maxTimeToLive) {
+
+		this.capacity = capacity;
+		this.maxTimeToLive = maxTimeToLive;
+		this.expiries = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > VerifiedTokenCache.this.capacity;
+			}
+		};
+
+	}
+
+
+	/**
+	 * Check whether the given token was verified and can still be trusted
+	 * @param token	Session token
+	 * @param now	Current time in milliseconds
+	 * @return true if the token is cached and has not expired; else false
+	 */
+	synchronized boolean isValid(String token, long now) {
+
+		Long expiry = expiries.get(token);
+		if(expiry == null) return false;
+		if(expiry > now) return true;
+		expiries.remove(token);
+		return false;
+
+	}
+
+
+	/**
+	 * Remember a token which has just been verified against the database
+	 * @param token		Session token
+	 * @param timeout	Timeout of the session (in milliseconds)
+	 * @param now		Current time in milliseconds
+	 */
+	synchronized void put(String token, long timeout, long now) {
+		expiries.put(token, Math.min(timeout, now + maxTimeToLive));
+	}
+
+
+	/**
+	 * Forget the given token
+	 * @param token	Session token
+	 */
+	synchronized void remove(String token) {
+		expiries.remove(token);
+	}
+
+
+	/**
+	 * Forget every token
+	 */
+	synchronized void clear() {
+		expiries.clear();
+	}
+
+}
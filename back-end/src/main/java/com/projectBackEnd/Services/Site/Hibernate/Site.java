@@ -30,8 +30,7 @@ public class Site implements TableEntity<Site> {
     @Column(name = SITENAME, nullable=false)
     private String name;
 	
-    @Type(type="text")
-    @Column(name = SITESLUG, nullable=false, unique=true)
+    @Column(name = SITESLUG, nullable=false, unique=true, length = 255)
     private String slug;
 
 	/**
@@ -0,0 +1,114 @@
+package main.java.com.projectBackEnd.Services.Site.Hibernate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * SiteCache keeps the Sites read from the database in memory, keyed by slug and by primary key.
+ * Sites are few and rarely change, so entries stay until the SiteManager invalidates the cache after a write.
+ *
+ * Copies are stored and handed out, so that callers changing a Site they were given do not change the cache.
+ */
+class SiteCache {
+
+    private final Map<String, Site> bySlug = new ConcurrentHashMap<>();
+    private final Map<Integer, Site> byId = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); // Changes on every invalidation
+
+    // Metrics on the lookups answered by the cache
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Get the site with the given slug, loading it on a miss
+     * @param slug      Slug of the site
+     * @param loader    Loads the site from the database, returning null if there is none
+     * @return copy of the site ; else null
+     */
+    Site getBySlug(String slug, Function<String, Site> loader) {
+        return get(bySlug.get(slug), () -> loader.apply(slug));
+    }
+
+
+    /**
+     * Get the site with the given primary key, loading it on a miss
+     * @param id        Primary key of the site
+     * @param loader    Loads the site from the database, returning null if there is none
+     * @return copy of the site ; else null
+     */
+    Site getById(Integer id, Function<Integer, Site> loader) {
+        return get(byId.get(id), () -> loader.apply(id));
+    }
+
+
+    /**
+     * Return a cached site, or load and cache it on a miss. Missing sites are not cached.
+     * @param cached    Site found in the cache, or null
+     * @param loader    Loads the site from the database
+     * @return copy of the site ; else null
+     */
+    private Site get(Site cached, Supplier<Site> loader) {
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            return copyOf(cached);
+        }
+        misses.incrementAndGet();
+        long loadedGeneration = generation.get();
+        Site loaded = loader.get();
+        if (loaded == null) return null;
+        Site entry = copyOf(loaded);
+        synchronized (this) {
+            // A write during the load may have made this site stale, so it is only cached if none happened
+            if (generation.get() == loadedGeneration) {
+                bySlug.put(entry.getSlug(), entry);
+                byId.put(entry.getPrimaryKey(), entry);
+            }
+        }
+        return copyOf(entry);
+
+    }
+
+
+    /**
+     * Forget every site, after the Site table has changed
+     */
+    synchronized void invalidate() {
+        generation.incrementAndGet();
+        bySlug.clear();
+        byId.clear();
+    }
+
+
+    /**
+     * Get the number of lookups answered from memory
+     * @return number of hits
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+
+    /**
+     * Get the number of lookups which went to the database
+     * @return number of misses
+     */
+    long getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Copy a site, primary key included
+     * @param site  Site to copy
+     * @return new Site with the same values
+     */
+    private static Site copyOf(Site site) {
+        return new Site(site.getPrimaryKey(), site.getSlug(), site.getName());
+    }
+
+}
@@ -4,9 +4,10 @@ import main.java.com.projectBackEnd.DuplicateKeysException;
 import main.java.com.projectBackEnd.EntityManager;
 import main.java.com.projectBackEnd.HibernateUtility;
 import main.java.com.projectBackEnd.InvalidFieldsException;
+import main.java.com.projectBackEnd.TableEntity;
 
+import java.io.Serializable;
 import java.util.List;
-import java.util.stream.Collectors;
 import javax.persistence.PersistenceException;
 /**
  * SiteManager defines methods to interact with the Site table in the database.
@@ -18,6 +19,8 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
 
     private static SiteManagerInterface siteManager;
 
+    private final SiteCache cache = new SiteCache();
+
     /**
      * Private constructor (Singleton design pattern)
      */
@@ -46,7 +49,11 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
      */
     public Site addSite(Site newSite) throws DuplicateKeysException, InvalidFieldsException {
         checkAddValidity(newSite);
-        return (Site) super.insertTuple(newSite);
+        try {
+            return (Site) super.insertTuple(newSite);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     /**
@@ -58,7 +65,11 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
      */
     public Site update(Site updatedVersion) throws DuplicateKeysException, InvalidFieldsException {
         checkUpdateValidity(updatedVersion);
-        return (Site) super.update(updatedVersion);
+        try {
+            return (Site) super.update(updatedVersion);
+        } finally {
+            cache.invalidate();
+        }
     }
 
 
@@ -68,7 +79,8 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
      * @return  found Site object
      */
     public Site getByPrimaryKey(Integer pk) {
-        return (Site) super.getByPrimaryKey(pk);
+        if (pk == null) return (Site) super.getByPrimaryKey(pk); //Not cached, the database rejects it
+        return cache.getById(pk, id -> (Site) super.getByPrimaryKey(id));
     }
 	
     /**
@@ -77,9 +89,12 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
      * @return found Site object
      */	
     public Site getSiteBySlug(String siteSlug) {
-        List<Site> matches = getAllSites().stream().filter(s -> s.getSlug().equals(siteSlug)).collect(Collectors.toList());
-        if (matches.size() >= 1) return matches.get(0);
-        else return null;
+        if (siteSlug == null) return null;
+        return cache.getBySlug(siteSlug, slug -> runTransaction(session ->
+                session.createQuery("from Site s where s.slug = :slug", Site.class)
+                        .setParameter("slug", slug)
+                        .uniqueResultOptional()
+                        .orElse(null), null));
     }
 
     /**
@@ -90,6 +105,60 @@ public class SiteManager extends EntityManager implements SiteManagerInterface {
         return (List<Site>) super.getAll();
     }
 
+    /**
+     * Delete the Site corresponding to the given primary key from the database
+     * @param pk    Primary key of the Site to remove
+     */
+    @Override
+    public void delete(Serializable pk) {
+        try {
+            super.delete(pk);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Delete the given Site from the database
+     * @param site  Site to remove
+     */
+    @Override
+    public void delete(TableEntity site) {
+        try {
+            super.delete(site);
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Remove all Sites from the database
+     */
+    @Override
+    public void deleteAll() {
+        try {
+            super.deleteAll();
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Get the number of site lookups answered from memory
+     * @return number of cache hits
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * Get the number of site lookups which went to the database
+     * @return number of cache misses
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
     /**
      * Checks if a given site has non null valid field attributes
      * @param site The site to be checked
@@ -4,6 +4,8 @@ import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.DuplicateKeysException;
 import main.java.com.projectBackEnd.InvalidFieldsException;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
@@ -22,6 +24,7 @@ import static main.java.com.projectBackEnd.URLLocation.location;
  * It provides HTTP requests for each of the queries that need to be made to add, remove, update and retrieve
  * information for sites in the database.
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/sites")
 public class SiteController {
 
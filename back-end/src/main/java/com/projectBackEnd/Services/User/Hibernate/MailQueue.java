@@ -0,0 +1,177 @@
+package main.java.com.projectBackEnd.Services.User.Hibernate;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.AddressException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MailQueue sends emails in the background so that requests do not wait on the mail server.
+ * Messages are queued up to a fixed capacity and delivered by a small pool of dedicated sender threads.
+ * A failed delivery is retried with an exponential backoff, up to a maximum number of attempts. Failures which a
+ * retry cannot fix, such as an invalid address or a recipient refused by the server, are dropped at once.
+ *
+ * The queue is held in memory only : messages still waiting when the application stops are lost.
+ */
+public class MailQueue {
+
+    private static MailQueue mailQueue;
+
+    private static final int CAPACITY = 1000;           // Maximum number of messages waiting to be sent
+    private static final int SENDERS = 2;               // Number of sender threads
+    private static final int MAX_ATTEMPTS = 5;          // Number of delivery attempts before a message is dropped
+    private static final long BACKOFF = 2000;           // Delay before the first retry (milliseconds), doubled each time
+
+    private final MailTransport transport;
+    private final int capacity;
+    private final int maxAttempts;
+    private final long backoff;
+    private final ScheduledThreadPoolExecutor senders;
+
+    // Metrics on the messages handled by this queue
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+
+    /**
+     * Main constructor
+     * @param transport     Transport used to deliver the messages
+     * @param capacity      Maximum number of messages waiting to be sent
+     * @param senders       Number of sender threads
+     * @param maxAttempts   Number of delivery attempts before a message is dropped
+     * @param backoff       Delay before the first retry (milliseconds), doubled for each following one
+     */
+    public MailQueue(MailTransport transport, int capacity, int senders, int maxAttempts, long backoff) {
+
+        this.transport = transport;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = new ScheduledThreadPoolExecutor(senders, task -> {
+            Thread thread = new Thread(task, "mail-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+
+    /**
+     * Get the mail queue of the application, which sends through the SMTP server
+     * @return mailQueue - if none has been defined, create a new MailQueue
+     */
+    public static synchronized MailQueue getMailQueue() {
+        if (mailQueue == null) mailQueue = new MailQueue(SendMail::deliver, CAPACITY, SENDERS, MAX_ATTEMPTS, BACKOFF);
+        return mailQueue;
+    }
+
+
+    /**
+     * Queue an email to be sent in the background
+     * @param to        The email address to send the message to
+     * @param title     The subject of the email
+     * @param content   The content of the email
+     * @return true if the message was queued ; false if the queue is full
+     */
+    public boolean enqueue(String to, String title, String content) {
+
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            return false;
+        }
+        senders.execute(() -> attempt(to, title, content, 1));
+        return true;
+
+    }
+
+
+    /**
+     * Try to deliver a message, and schedule a retry if it fails and attempts remain
+     * @param to        The email address to send the message to
+     * @param title     The subject of the email
+     * @param content   The content of the email
+     * @param attempt   Number of this attempt, starting at 1
+     */
+    private void attempt(String to, String title, String content, int attempt) {
+
+        try {
+            transport.send(to, title, content);
+            sent.incrementAndGet();
+        } catch (MessagingException | RuntimeException e) {
+            if (attempt < maxAttempts && !isPermanent(e)) {
+                retried.incrementAndGet();
+                long delay = backoff << (attempt - 1);
+                senders.schedule(() -> attempt(to, title, content, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            failed.incrementAndGet();
+        }
+        pending.decrementAndGet();
+
+    }
+
+
+    /**
+     * Check whether a delivery failure would happen again on retry : a malformed address, or a message refused by
+     * the server, unless it answered with a transient (4xx) reply code
+     * @param e The failure
+     * @return true if the message should not be retried
+     */
+    private static boolean isPermanent(Exception e) {
+
+        if (e instanceof SMTPAddressFailedException) return ((SMTPAddressFailedException) e).getReturnCode() / 100 != 4;
+        if (e instanceof SMTPSendFailedException) return ((SMTPSendFailedException) e).getReturnCode() / 100 != 4;
+        if (e instanceof AddressException) return true;
+        if (!(e instanceof SendFailedException)) return false;
+        // The transport reports refused recipients as the chained exceptions of a SendFailedException
+        Exception next = ((SendFailedException) e).getNextException();
+        return next == null || isPermanent(next);
+
+    }
+
+
+    /**
+     * Get the number of messages queued or being retried
+     * @return number of pending messages
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+
+    /**
+     * Get the number of messages delivered
+     * @return number of sent messages
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+
+    /**
+     * Get the number of retries scheduled after a failed delivery
+     * @return number of retries
+     */
+    public long getRetried() {
+        return retried.get();
+    }
+
+
+    /**
+     * Get the number of messages dropped after their last attempt failed
+     * @return number of failed messages
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+}
@@ -0,0 +1,21 @@
+package main.java.com.projectBackEnd.Services.User.Hibernate;
+
+import javax.mail.MessagingException;
+
+/**
+ * A MailTransport delivers a single email. The MailQueue hands its messages to one, so that the real SMTP
+ * server can be replaced, for instance by a local stub in tests.
+ */
+@FunctionalInterface
+public interface MailTransport {
+
+    /**
+     * Deliver an email
+     * @param to        The email address to send the message to
+     * @param title     The subject of the email
+     * @param content   The content of the email
+     * @throws MessagingException If the email could not be delivered
+     */
+    void send(String to, String title, String content) throws MessagingException;
+
+}
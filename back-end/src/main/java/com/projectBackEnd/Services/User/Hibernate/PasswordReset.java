@@ -14,13 +14,25 @@ public class PasswordReset implements PasswordResetInterface {
 
 	private static PasswordResetInterface passwordResetManager;
 
+	private final MailQueue mailQueue;
+
 	/**
-	 * Private constructor implementing Singleton design pattern
+	 * Private constructor implementing Singleton design pattern, sending emails through the SMTP server
 	 */
 	private PasswordReset(){
+		mailQueue = MailQueue.getMailQueue();
 		passwordResetManager = this;
 	}
 
+	/**
+	 * Constructor for a manager sending its emails through the given queue, such as one with a stub transport in
+	 * tests. It does not replace the singleton.
+	 * @param mailQueue	The queue the reset emails are sent through
+	 */
+	public PasswordReset(MailQueue mailQueue){
+		this.mailQueue = mailQueue;
+	}
+
 	/**
 	 * Get the password reset manager
 	 * @return passwordResetManager - if none has been defined, create a new PasswordReset object
@@ -31,18 +43,18 @@ public class PasswordReset implements PasswordResetInterface {
 	}
 
 	/**
-	 * Sends a reset verification link to a provided email
+	 * Sends a reset verification link to a provided email. The email is queued and sent in the background.
 	 * @param email	The email to send the link to
 	 * @throws EmailNotExistException	Non-existing email provided
-	 * @throws ServerErrorException        Internal server error
+	 * @throws ServerErrorException        Internal server error, e.g. too many emails waiting to be sent
 	 */
 	public void sendPasswordResetLink(String email) throws EmailNotExistException, ServerErrorException {
 
 		String token = ResetLinkManager.getResetLinkManager().create(email);
 		String title = "Password Reset Request";
 		String content = "please click the link to reset the password: \n" + token + "\n if you did not request password reset please ignore this message";
-		if(!SendMail.send(email, title, content))
-		 	throw new ServerErrorException("error has occured");
+		if(!mailQueue.enqueue(email, title, content))
+		 	throw new ServerErrorException("mail queue is full");
 	
 	}
 
@@ -57,11 +69,8 @@ public class PasswordReset implements PasswordResetInterface {
 	public void changePassword(String token, String password) throws TokenNotExistException, UserNotExistException, InvalidPasswordException {
 
 		if(password == null || password.isEmpty()) throw new InvalidPasswordException("invalid password");
-		String email = ResetLinkManager.getResetLinkManager().getEmail(token);
-		if(ResetLinkManager.getResetLinkManager().exist(token)){
-			ResetLinkManager.getResetLinkManager().delete(token);
-			UserManager.getUserManager().changePassword(email,password);
-		}
-		else throw new TokenNotExistException("incorrect token");
+		String email = ResetLinkManager.getResetLinkManager().consume(token);
+		if(email == null) throw new TokenNotExistException("incorrect token");
+		UserManager.getUserManager().changePassword(email,password);
 	}
 }
@@ -4,6 +4,11 @@ import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.mail.Authenticator;
 import javax.mail.Message;
 import javax.mail.MessagingException;
@@ -17,6 +22,11 @@ import com.sun.mail.util.MailSSLSocketFactory;
 /**
  * This is the SendMail class.
  * It will send a email to the end user`s address while signing up.
+ * The addresser account is my personal account. Only in this way I can get authentication code.
+ *
+ * The mail session is configured once, and connected SMTP transports are kept in a small pool and reused across
+ * messages, so that each email does not pay for a new TLS handshake. A pooled transport is checked before it is
+ * reused, and closed once it has been idle for too long.
  */
 class SendMail
 
@@ -27,34 +37,93 @@ class SendMail
     private static String propertyMailServer = "smtp.qq.com";
     private static String propertyAuth = "mail.smtp.auth";
 
+    private static final int POOL_SIZE = 2;             // Maximum number of idle connections kept open
+    private static final long IDLE_TIMEOUT = 60000;     // Time after which an idle connection is closed (milliseconds)
+
+    private static Session session;
+    private static final BlockingQueue<PooledTransport> idleTransports = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ScheduledExecutorService idleCloser = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "smtp-idle-closer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        idleCloser.scheduleWithFixedDelay(SendMail::closeIdleTransports, IDLE_TIMEOUT, IDLE_TIMEOUT / 2, TimeUnit.MILLISECONDS);
+    }
+
     /**
-     * This method will send a email to a specific email account.
-     * The addresser account is my personal account.
-     * Only in this way I can get authentication code.
+     * Send an email through the SMTP server, reporting why it failed - this is the transport of the MailQueue
      * @param to The email to send the message to
      * @param title The subject of email
      * @param content The content of email
-     * @return The success of the call
+     * @throws MessagingException If the email could not be sent
      */
-     static boolean send(String to, String title, String content) {
+    static void deliver(String to, String title, String content) throws MessagingException {
         try {
             sendMessage(to, title, content, getDefaultSession());
         }
-        catch (MessagingException | UnsupportedEncodingException mex) { return false; }
-        return true;
+        catch (UnsupportedEncodingException e) { throw new MessagingException("Unsupported encoding", e); }
     }
 
     /**
-     * Gets a default session set up using the sender and authentication
+     * Gets the session set up using the sender and authentication, creating it on first use
      * @return The session created in this way
      */
-    private static Session getDefaultSession() {
-        return Session.getDefaultInstance(getProperties(), new Authenticator()
+    private static synchronized Session getDefaultSession() {
+        if (session == null) session = Session.getInstance(getProperties(), new Authenticator()
         {
             public PasswordAuthentication getPasswordAuthentication() {
                 return new PasswordAuthentication(sender, authentication);
             }
         });
+        return session;
+    }
+
+    /**
+     * Take a connected transport from the pool, or open a new one if none is idle. Transports which have been idle
+     * for too long, or whose connection no longer answers, are closed instead of being reused.
+     * @param session The session the transport belongs to
+     * @return A connected transport
+     * @throws MessagingException If no connection could be opened
+     */
+    private static Transport borrowTransport(Session session) throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idleTransports.poll()) != null) {
+            if (!pooled.isExpired(System.currentTimeMillis()) && pooled.transport.isConnected()) return pooled.transport;
+            close(pooled.transport);
+        }
+        Transport transport = session.getTransport("smtp");
+        transport.connect();
+        return transport;
+    }
+
+    /**
+     * Give a transport back to the pool after a successful send, or close it if the pool is full
+     * @param transport The transport to give back
+     */
+    private static void releaseTransport(Transport transport) {
+        if (!idleTransports.offer(new PooledTransport(transport, System.currentTimeMillis()))) close(transport);
+    }
+
+    /**
+     * Close the pooled transports which have been idle for longer than the idle timeout
+     */
+    private static void closeIdleTransports() {
+        long now = System.currentTimeMillis();
+        for (PooledTransport pooled : idleTransports) {
+            if (pooled.isExpired(now) && idleTransports.remove(pooled)) close(pooled.transport);
+        }
+    }
+
+    /**
+     * Close a transport, ignoring failures since the connection is no longer wanted
+     * @param transport The transport to close
+     */
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) { /*ignore - already broken*/ }
     }
 
     /**
@@ -73,15 +142,23 @@ class SendMail
         message.setSubject(title, "UTF-8");
         message.setContent(content, "text/html;charset=UTF-8");
         message.setSentDate(new Date());
-        Transport.send(message);
+        message.saveChanges();
+        Transport transport = borrowTransport(session);
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            close(transport); //The connection may be left in an unknown state
+            throw e;
+        }
+        releaseTransport(transport);
     }
 
     /**
-     * Get system properties to set up the host using a simple mail transfer protocol
+     * Get the properties setting up the host using a simple mail transfer protocol
      * @return The set up properties to this account
      */
     private static Properties getProperties() {
-        Properties properties = System.getProperties();
+        Properties properties = new Properties();
         properties.setProperty(propertyHost, propertyMailServer);
         properties.put(propertyAuth, "true");
         MailSSLSocketFactory MailSocket;
@@ -94,4 +171,32 @@ class SendMail
         return properties;
     }
 
+    /**
+     * A connected transport waiting in the pool, with the time it was last used
+     */
+    private static class PooledTransport {
+
+        private final Transport transport;
+        private final long lastUsed;
+
+        /**
+         * Main constructor
+         * @param transport The connected transport
+         * @param lastUsed  Time it was last used (milliseconds)
+         */
+        private PooledTransport(Transport transport, long lastUsed) {
+            this.transport = transport;
+            this.lastUsed = lastUsed;
+        }
+
+        /**
+         * Check whether the transport has been idle for too long to be reused
+         * @param now Current time (milliseconds)
+         * @return true if it should be closed
+         */
+        private boolean isExpired(long now) {
+            return now - lastUsed > IDLE_TIMEOUT;
+        }
+    }
+
 }
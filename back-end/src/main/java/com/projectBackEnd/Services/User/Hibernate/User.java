@@ -32,8 +32,7 @@ public class User implements TableEntity<User> {
 	@Column(name = KEY)
    	private int primaryKey;
 
-	@Column(name = EMAIL)
-	@Type(type="text")
+	@Column(name = EMAIL, unique = true, length = 255)
 	private String email;
 
 	@Column(name = PASSWORD)
@@ -74,7 +74,7 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 		if(!EmailValidator.getInstance().isValid(email))
 			throw new InvalidEmailException("email: " + email + " is invalid");
 
-		if(getAll().stream().filter(u->((User)u).getEmail().equals(email)).count() > 0)
+		if(getUserByEmail(email) != null)
 			throw new EmailExistsException("email: " + email + " already exsists");
 
 		if(name == null || name.trim().isEmpty())
@@ -94,7 +94,8 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	 * @return A new session, with verified user
 	 */
 	public String verifyUser(String email,String password){
-		if(getAll().stream().filter(u->(((User)u).getEmail().equals(email) && ((User)u).getPassword().equals(hash(password)))).count() > 0)
+		User user = getUserByEmail(email);
+		if(user != null && user.getPassword().equals(hash(password)))
 			return SessionManager.getSessionManager().getNewSession(email,TIMEOUT);
 		else return null;
 			
@@ -110,9 +111,7 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	public void changePassword(String email, String newPassword) throws UserNotExistException,InvalidPasswordException {
 
 		if(newPassword == null || newPassword.trim().isEmpty()) throw new InvalidPasswordException("invalid password");
-		List<User> users = getAll();
-		User user = null;
-		for(User u:users) if(u.getEmail().equals(email)) user = u;
+		User user = getUserByEmail(email);
 
 		if(user == null) throw new UserNotExistException("there is no user with email: " + email);
 
@@ -129,12 +128,8 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	 * @throws EmailExistsException Pre-existing user
 	 */
 	public void changeEmail(String oldEmail, String newEmail) throws UserNotExistException,EmailExistsException { 
-		List<User> users = getAll();
-		User user = null;
-		for(User u:users){
-			if(u.getEmail().equals(oldEmail)) user = u;
-			if(u.getEmail().equals(newEmail)) throw new EmailExistsException("email: " + newEmail + " already exists");
-		}
+		if(getUserByEmail(newEmail) != null) throw new EmailExistsException("email: " + newEmail + " already exists");
+		User user = getUserByEmail(oldEmail);
 		if(user == null) throw new UserNotExistException("there is no user with email: " + oldEmail);
 		user.setEmail(newEmail);
 		update(user);
@@ -149,9 +144,7 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	 */
 	public void changeName(String email,String name) throws UserNotExistException, IncorrectNameException {
 
-		List<User> users = getAll();
-		User user = null;
-		for(User u:users) if(u.getEmail().equals(email)) user = u;
+		User user = getUserByEmail(email);
 
 		if(user == null) throw new UserNotExistException("there is no user with email: " + email);
 		if(name == null || name.trim().isEmpty()) throw new IncorrectNameException("incorrect name");
@@ -161,15 +154,15 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	}
 
 	/**
-	 * Filter through all users to find given user
+	 * Find the given user and get their name
 	 * @param email The email of the user to search for
 	 * @return The found user's name - or exception
 	 * @throws UserNotExistException The user was not found
 	 */
 	public String getName(String email) throws UserNotExistException {
 
-		List<User> users = getAll();
-		for(User u:users) if(u.getEmail().equals(email)) return u.getName();
+		User user = getUserByEmail(email);
+		if(user != null) return user.getName();
 		throw new UserNotExistException("No such user");
 
 	}
@@ -180,7 +173,7 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	 * @return Verification status
 	 */
 	public boolean verifyEmail(String email){
-		return (getAll().stream().filter(u->((User)u).getEmail().equals(email)).count() > 0);
+		return getUserByEmail(email) != null;
 	}
 
 	/**
@@ -196,6 +189,20 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	}
 
 
+	/**
+	 * Find the user with the given email, using the unique index on the email column
+	 * @param email	Email of the user
+	 * @return The user with this email ; else null
+	 */
+	private User getUserByEmail(String email) {
+		if(email == null) return null;
+		return runTransaction(session -> session.createQuery("from User u where u.email = :email", User.class)
+				.setParameter("email", email)
+				.uniqueResultOptional()
+				.orElse(null), null);
+	}
+
+
 	/**
 	 * Hash a given password to add to the database
 	 * @param password The password to hash
@@ -228,14 +235,12 @@ public class UserManager extends EntityManager implements UserManagerInterface {
 	public void deleteUser(String email, String password) throws UserNotExistException{
 		String token = verifyUser(email,password);
 		if(token != null){
-			List<User> users = getAll();
+			User user = getUserByEmail(email);
 
 			SessionManager.getSessionManager().terminateSession(token);
-			for(User u: users){
-				if(u.getEmail().equals(email)){
-					delete(u);
-					return;
-				}
+			if(user != null){
+				delete(user);
+				return;
 			}
 		}
 		throw new UserNotExistException("user details incorrect");
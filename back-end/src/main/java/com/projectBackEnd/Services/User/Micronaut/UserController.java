@@ -3,7 +3,9 @@ package main.java.com.projectBackEnd.Services.User.Micronaut;
 
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 import main.java.com.projectBackEnd.Services.Session.NoSessionException;
@@ -22,6 +24,7 @@ import java.util.List;
  * It provides HTTP requests for each of the queries that carry out the creation, deletion, retrieval, updating
  * and logging in and out of users
  */
+@ExecuteOn(BlockingExecutorFactory.BLOCKING)
 @Controller("/user")
 public class UserController {
 
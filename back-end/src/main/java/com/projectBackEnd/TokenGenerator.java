@@ -1,11 +1,24 @@
 package main.java.com.projectBackEnd;
 
-import java.util.Random;
+import java.security.SecureRandom;
 
 /**
- * Class which will generate a random alphanumeric token of a given length
+ * Class which will generate a random alphanumeric token of a given length.
+ * Tokens are drawn from a SecureRandom, one per thread so that concurrent logins do not contend on it.
+ * Random bytes are mapped to the lexicon by rejection sampling, so every character is equally likely : a 50 character
+ * token over 61 characters carries about 296 bits of entropy, which makes collisions negligible without checking
+ * the database.
+ * The random bytes and the characters of the token are written into buffers kept by each thread, so that only the
+ * returned String is allocated.
  */
 public class TokenGenerator {
+
+    private static final int BATCH = 64;   // Number of random bytes drawn at once
+
+    private static final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<byte[]> bytes = ThreadLocal.withInitial(() -> new byte[BATCH]);
+    private static final ThreadLocal<char[]> chars = ThreadLocal.withInitial(() -> new char[BATCH]);
+
     /**
      * Generates a random string assignment
      * @param length The length of the token to be returned
@@ -13,11 +26,29 @@ public class TokenGenerator {
      * @return A randomly generated assortment of letters from the given lex.
      */
     public static String generateToken(int length, String lex) {
-        Random rand = new Random();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < length; ++i) {
-            sb.append(lex.charAt(rand.nextInt(lex.length())));
+
+        int size = lex.length();
+        if (size == 0 || size > 256) throw new IllegalArgumentException("The lexicon must have between 1 and 256 characters");
+        // Bytes from this bound up are rejected, so that the remaining ones split evenly over the lexicon
+        int bound = 256 - 256 % size;
+
+        char[] token = chars.get();
+        if (token.length < length) {
+            token = new char[length];
+            chars.set(token);
+        }
+        byte[] buffer = bytes.get();
+        SecureRandom rand = random.get();
+        int position = BATCH;
+        for (int i = 0; i < length; ) {
+            if (position == BATCH) {
+                rand.nextBytes(buffer);
+                position = 0;
+            }
+            int value = buffer[position++] & 0xFF;
+            if (value < bound) token[i++] = lex.charAt(value % size);
         }
-        return sb.toString();
+        return new String(token, 0, length);
+
     }
 }
@@ -4,6 +4,8 @@ import io.micronaut.core.type.Argument;
 import io.micronaut.http.*;
 import io.micronaut.http.client.multipart.MultipartBody;
 import io.micronaut.test.annotation.MicronautTest;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.runtime.server.EmbeddedServer;
 import io.micronaut.http.client.HttpClient;
 import io.micronaut.http.client.annotation.Client;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
@@ -25,12 +27,30 @@ import main.java.com.projectBackEnd.Services.User.Hibernate.UserManager;
 
 import main.java.com.projectBackEnd.HibernateUtility;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 /**
  * The purpose of this class is to test the REST endpoints associated with the image related executions
  */
 @MicronautTest
+@Property(name = "uploads.max-bytes", value = "41943040")	// 40MB, below the request size limit of the server
+@Property(name = "uploads.max-concurrent", value = "2")
 class ImageControllerTest {
+	private static final String BOUNDARY = "admission";	// Boundary of the raw multipart uploads
 	private static ImageManagerInterface imageManager;
     private static String token;
 
@@ -48,6 +68,15 @@ class ImageControllerTest {
 	@Inject
 	@Client("/")
 	private HttpClient client;
+
+	@Inject
+	private UploadAdmissionFilter admissionFilter;
+
+	@Inject
+	private ImageDerivatives derivatives;
+
+	@Inject
+	private EmbeddedServer server;
  
 	/**
 	 * Set up the user table for sessions and set the target directory of generated images to the specified folder
@@ -181,6 +210,25 @@ class ImageControllerTest {
 	
 	}
 
+	/**
+	 * Test that an image saved in the directory before metadata was kept is listed once the startup pass has run,
+	 * and shares the content of an identical upload
+	 */
+	@Test
+	void testListBackfilledImage() throws IOException {
+		String uploaded = getEUrl(addImage(file,token));
+		Path legacy = Paths.get(imageManager.getDir(), "LEGACY01.jpg");
+		Files.copy(file.toPath(), legacy);
+		assertFalse(client.toBlocking().retrieve(HttpRequest.GET("/images")).contains("LEGACY01.jpg"));
+
+		new MediaBackfill().onApplicationEvent(null);
+		String listing = client.toBlocking().retrieve(HttpRequest.GET("/images"));
+		assertTrue(listing.contains("LEGACY01.jpg"));
+		assertTrue(listing.contains(uploaded));
+		assertEquals(imageManager.getMedia(uploaded).getChecksum(), imageManager.getMedia("LEGACY01.jpg").getChecksum());
+		assertEquals(0, new MediaBackfill().backfill());
+	}
+
 	/**
 	 * Testing adding and getting the same image
 	 */
@@ -196,6 +244,227 @@ class ImageControllerTest {
 		assertNotNull(targetImage);
 	}
 
+	/**
+	 * Test the caching headers of an image, and that conditional and range requests are honoured
+	 */
+	@Test
+	void testConditionalAndRangeGet(){
+		String imageName = getEUrl(addImage(file,token));
+		HttpResponse<byte[]> response = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName), byte[].class);
+		assertEquals(HttpStatus.OK, response.getStatus());
+		assertEquals(MediaType.IMAGE_JPEG_TYPE, response.getContentType().orElse(null));
+		String etag = response.header(HttpHeaders.ETAG);
+		assertNotNull(etag);
+		assertNotNull(response.header(HttpHeaders.LAST_MODIFIED));
+		assertTrue(response.header(HttpHeaders.CACHE_CONTROL).contains("max-age"));
+
+		HttpResponse notModified = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName)
+				.header(HttpHeaders.IF_NONE_MATCH, etag));
+		assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatus());
+
+		HttpResponse<byte[]> partial = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName)
+				.header(HttpHeaders.RANGE, "bytes=0-9"), byte[].class);
+		assertEquals(HttpStatus.PARTIAL_CONTENT, partial.getStatus());
+		assertEquals("bytes 0-9/" + file.length(), partial.header(HttpHeaders.CONTENT_RANGE));
+		assertEquals(10, partial.body().length);
+
+		// The ETag is the checksum of the content, and If-Range accepts it or the date of last modification
+		assertEquals("\"" + imageManager.getMedia(imageName).getChecksum() + "\"", etag);
+		String lastModified = response.header(HttpHeaders.LAST_MODIFIED);
+		HttpResponse<byte[]> byDate = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName)
+				.header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, lastModified), byte[].class);
+		assertEquals(HttpStatus.PARTIAL_CONTENT, byDate.getStatus());
+		HttpResponse<byte[]> stale = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName)
+				.header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "Thu, 01 Jan 1970 00:00:00 GMT"), byte[].class);
+		assertEquals(HttpStatus.OK, stale.getStatus());
+		assertEquals(file.length(), stale.body().length);
+
+		HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+				client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName)
+						.header(HttpHeaders.RANGE, "bytes=" + file.length() + "-")));
+		assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, thrown.getStatus());
+	}
+
+	/**
+	 * Test that resized copies of an image are served when a width or a format is requested
+	 */
+	@Test
+	void testResizedGet() throws IOException {
+		String imageName = getEUrl(addImage(file,token));
+		HttpResponse<byte[]> response = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName+"?width=150"), byte[].class);
+		assertEquals(HttpStatus.OK, response.getStatus());
+		BufferedImage resized = ImageIO.read(new ByteArrayInputStream(response.body()));
+		assertEquals(Math.min(160, ImageIO.read(file).getWidth()), resized.getWidth());
+
+		HttpResponse<byte[]> converted = client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName+"?format=png"), byte[].class);
+		assertEquals(MediaType.IMAGE_PNG_TYPE, converted.getContentType().orElse(null));
+
+		HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+				client.toBlocking().exchange(HttpRequest.GET("/images/"+imageName+"?format=tiff")));
+		assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatus());
+
+		// Deleting the image deletes its derivatives
+		assertTrue(derivatives.getCachedBytes() > 0);
+		client.toBlocking().exchange(HttpRequest.DELETE("/images/"+imageName).header("X-API-Key",token));
+		assertEquals(0, derivatives.getCachedBytes());
+	}
+
+	/**
+	 * Test that uploads go through the admission filter, which releases their slot and bytes once done
+	 */
+	@Test
+	void testUploadAdmission(){
+		long admitted = admissionFilter.getAdmitted();
+		HttpResponse response = addImage(file,token);
+		assertEquals(HttpStatus.CREATED, response.getStatus());
+		assertEquals(admitted + 1, admissionFilter.getAdmitted());
+		assertEquals(0, admissionFilter.getInFlightUploads());
+		assertEquals(0, admissionFilter.getInFlightBytes());
+	}
+
+	/**
+	 * Test that uploads are turned away with 503 and a Retry-After header while every upload slot is taken by
+	 * uploads still being received, and that adding an image by checksum does not need a slot
+	 */
+	@Test
+	void testUploadRejectedWhenSaturated() throws IOException, InterruptedException {
+		byte[] data = Files.readAllBytes(file.toPath());
+		byte[] part = partHeader("slow.jpg");
+		byte[] end = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		List<Socket> slow = new ArrayList<>();
+		try {
+			// Two uploads (the configured maximum) send their headers and the start of their content, then stall
+			for (int i = 0; i < 2; i++) {
+				Socket socket = openUpload("Content-Length: " + (part.length + data.length + end.length));
+				slow.add(socket);
+				OutputStream out = socket.getOutputStream();
+				out.write(part);
+				out.write(data, 0, 1024);
+				out.flush();
+			}
+			long deadline = System.currentTimeMillis() + 10000;
+			while (admissionFilter.getInFlightUploads() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+			assertEquals(2, admissionFilter.getInFlightUploads());
+
+			long rejected = admissionFilter.getRejected();
+			HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () -> addImage(file,token));
+			assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatus());
+			assertEquals("5", thrown.getResponse().getHeaders().get(HttpHeaders.RETRY_AFTER));
+			assertEquals(rejected + 1, admissionFilter.getRejected());
+
+			HttpRequest request = HttpRequest.POST("/images/checksum/"+String.join("", Collections.nCopies(64, "0"))+"?extension=png", "")
+					.header("X-API-Key", token);
+			thrown = assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+			assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
+
+			// The stalled uploads complete once the rest of their content arrives
+			for (Socket socket : slow) {
+				OutputStream out = socket.getOutputStream();
+				out.write(data, 1024, data.length - 1024);
+				out.write(end);
+				out.flush();
+				assertTrue(statusLine(socket).startsWith("HTTP/1.1 201"));
+			}
+		} finally {
+			for (Socket socket : slow) socket.close();
+		}
+		assertEquals(HttpStatus.CREATED, addImage(file,token).getStatus());
+	}
+
+	/**
+	 * Test that an upload of unknown length is refused with 413 once it streams more than its share of the budget
+	 */
+	@Test
+	void testChunkedUploadOverReservation() throws IOException {
+		long rejected = admissionFilter.getRejected();
+		try (Socket socket = openUpload("Transfer-Encoding: chunked")) {
+			OutputStream out = socket.getOutputStream();
+			try {
+				writeChunk(out, partHeader("chunked.jpg"));
+				byte[] chunk = new byte[1 << 20];
+				// 24MB, over the 20MB reserved for an upload of unknown length (40MB shared by 2 uploads)
+				for (int i = 0; i < 24; i++) writeChunk(out, chunk);
+				writeChunk(out, ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+				out.flush();
+			} catch (IOException e) {
+				// The server may stop reading once it has refused the upload
+			}
+			assertTrue(statusLine(socket).startsWith("HTTP/1.1 413"));
+		}
+		assertEquals(rejected + 1, admissionFilter.getRejected());
+	}
+
+	/**
+	 * Test that an upload announcing more bytes than the whole budget is refused with 413 before its content is sent
+	 */
+	@Test
+	void testUploadTooLarge() throws IOException {
+		long rejected = admissionFilter.getRejected();
+		try (Socket socket = openUpload("Content-Length: " + (60 << 20))) {
+			// Only the start of the 60MB body is sent : the response must come without the rest of it
+			OutputStream out = socket.getOutputStream();
+			out.write(partHeader("large.jpg"));
+			out.write(new byte[8192]);
+			out.flush();
+			assertTrue(statusLine(socket).startsWith("HTTP/1.1 413"));
+		}
+		assertEquals(rejected + 1, admissionFilter.getRejected());
+	}
+
+	/**
+	 * Open a connection to the server and send the headers of a multipart upload
+	 * @param framing	Content-Length or Transfer-Encoding header of the upload
+	 * @return the connection, on which the body is to be sent
+	 * @throws IOException If the connection fails
+	 */
+	private Socket openUpload(String framing) throws IOException {
+		Socket socket = new Socket(server.getHost(), server.getPort());
+		socket.setSoTimeout(10000);
+		OutputStream out = socket.getOutputStream();
+		out.write(("POST /images HTTP/1.1\r\n"
+				+ "Host: " + server.getHost() + "\r\n"
+				+ "X-API-Key: " + token + "\r\n"
+				+ "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+				+ framing + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		return socket;
+	}
+
+	/**
+	 * Build the headers of the file part of a multipart upload
+	 * @param filename	Name of the uploaded file
+	 * @return the part headers
+	 */
+	private byte[] partHeader(String filename) {
+		return ("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+				+ "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Send a chunk of a chunked body
+	 * @param out	Stream of the connection
+	 * @param data	Content of the chunk
+	 * @throws IOException If the connection fails
+	 */
+	private void writeChunk(OutputStream out, byte[] data) throws IOException {
+		out.write((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.write(data);
+		out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Read the status line of the response to a raw request
+	 * @param socket	Connection the request was sent on
+	 * @return the status line
+	 * @throws IOException If no response arrives
+	 */
+	private String statusLine(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		return in.readLine();
+	}		assertEquals(rejected + 1, admissionFilter.getRejected());
+	}
+
 	/**
 	 * Test adding a large image
 	 */
@@ -0,0 +1,114 @@
+package test.java;
+
+import main.java.com.projectBackEnd.HibernateUtility;
+import main.java.com.projectBackEnd.Services.Image.DirectoryHolder;
+import main.java.com.projectBackEnd.Services.Image.ImageDerivatives;
+import main.java.com.projectBackEnd.Services.Image.ImageManager;
+import main.java.com.projectBackEnd.Services.Image.ImageManagerInterface;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * The purpose of this class is to test the cache of resized images, in particular under concurrent requests
+ */
+class ImageDerivativesTest {
+
+    private static ImageManagerInterface imageManager;
+
+    /**
+     * Prior to running, set the directory to the test image folder
+     */
+    @BeforeAll
+    static void setUpBefore() {
+        HibernateUtility.setResource("testhibernate.cfg.xml");
+        DirectoryHolder.getDirectoryHolder().setDir(System.getProperty("user.dir")+"/src/test/resources/TestImages/");
+        imageManager = ImageManager.getImageManager();
+    }
+
+    /**
+     * Prior to each test, clean up the test image folder
+     */
+    @BeforeEach
+    void setUp() { imageManager.deleteAll(); }
+
+    /**
+     * After all the tests, clean up the folder and set the directory back to default
+     */
+    @AfterAll
+    static void cleanUp() {
+        imageManager.deleteAll();
+        DirectoryHolder.getDirectoryHolder().setDefaultDir();
+    }
+
+    /**
+     * Test that concurrent requests for derivatives are all served while a cap holding half of them forces
+     * evictions, and that the size accounted for by the cache matches the derivatives left on disk
+     */
+    @Test
+    @Timeout(120)
+    void testConcurrentGetWithEvictions() throws Exception {
+        String name;
+        try (InputStream in = new FileInputStream("src/test/resources/TestImages/UploadedImage/testImage.jpg")) {
+            name = imageManager.saveImage(in, "jpg");
+        }
+        File original = imageManager.getImage(name);
+
+        ImageDerivatives unbounded = new ImageDerivatives(Long.MAX_VALUE, 40000000);
+        for (int width : ImageDerivatives.WIDTHS) assertNotNull(unbounded.get(original, width, "png"));
+        long total = unbounded.getCachedBytes();
+
+        ImageDerivatives derivatives = new ImageDerivatives(total / 2, 40000000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random random = new Random(t);
+            threads.add(pool.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    int width = ImageDerivatives.WIDTHS[random.nextInt(ImageDerivatives.WIDTHS.length)];
+                    if (derivatives.get(original, width, "png") == null) failures.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> thread : threads) thread.get();
+        pool.shutdown();
+
+        assertEquals(0, failures.get());
+        assertTrue(derivatives.getEvictions() > 0);
+        assertEquals(cachedOnDisk(), derivatives.getCachedBytes());
+        assertTrue(derivatives.getCachedBytes() <= total);
+        for (int width : ImageDerivatives.WIDTHS) assertTrue(derivatives.get(original, width, "png").isFile());
+    }
+
+    /**
+     * Sum the sizes of the derivatives stored in the cache directory
+     * @return size in bytes
+     */
+    private long cachedOnDisk() throws IOException {
+        Path cache = Paths.get(imageManager.getDir(), ".derivatives");
+        try (Stream<Path> paths = Files.walk(cache)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package test.java;
 
 
+import main.java.com.projectBackEnd.HibernateUtility;
 import main.java.com.projectBackEnd.Services.Image.DirectoryHolder;
 import main.java.com.projectBackEnd.Services.Image.ImageManager;
 import main.java.com.projectBackEnd.Services.Image.ImageManagerInterface;
+import main.java.com.projectBackEnd.Services.Image.Media;
+import main.java.com.projectBackEnd.Services.Image.MediaLayout;
+import main.java.com.projectBackEnd.Services.Image.MediaMigration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.io.File;
 import static org.junit.Assert.*;
@@ -34,6 +43,7 @@ class ImageManagerTest {
      */
     @BeforeAll
     static void setUpBefore() {
+        HibernateUtility.setResource("testhibernate.cfg.xml");
         DirectoryHolder.getDirectoryHolder().setDir(System.getProperty("user.dir")+"/src/test/resources/TestImages/");
     }
 
@@ -64,6 +74,21 @@ class ImageManagerTest {
         assertTrue(check);
     }
 
+    /**
+     * Test saving an image streamed from an input stream, and that its content is written as is
+     */
+    @Test
+    void testSaveImageFromStream() throws IOException {
+        byte[] data = new byte[3 << 20];
+        new Random(42).nextBytes(data);
+        String randomName = imageManager.saveImage(new ByteArrayInputStream(data), "PNG");
+        assertNotNull(randomName);
+        assertTrue(randomName.endsWith(".png"));
+        assertTrue(imageManager.getImageUrls().contains(imageManager.getDir()+randomName));
+        assertArrayEquals(data, Files.readAllBytes(imageManager.getImage(randomName).toPath()));
+        assertNull(imageManager.saveImage((InputStream) null, "png"));
+    }
+
     /**
      * Test Saving an image with a null extension
      */
@@ -95,6 +120,152 @@ class ImageManagerTest {
         assertEquals(0, imageManager.getImageUrls().size());
     }
 
+    /**
+     * Test that names outside of the media directory cannot be looked up
+     */
+    @Test
+    void testGetImageOutsideDirectory() {
+        assertNull(imageManager.getImage(".."));
+        assertNull(imageManager.getImage("../ImageBytes.txt"));
+        assertNull(imageManager.getImage("/etc/passwd"));
+    }
+
+    /**
+     * Test that the in-memory index follows saved and deleted files, as well as files added to the directory directly
+     */
+    @Test
+    void testIndexedLookup() throws IOException, InterruptedException {
+        assertTrue(imageManager.enableIndex());
+        try {
+            String randomName = imageManager.saveImage(new ByteArrayInputStream(new byte[16]), "png");
+            assertNotNull(imageManager.getImage(randomName));
+            assertTrue(imageManager.getImageUrls().contains(imageManager.getDir()+randomName));
+            assertTrue(imageManager.deleteImage(randomName));
+            assertNull(imageManager.getImage(randomName));
+
+            Files.write(Paths.get(imageManager.getDir(), "external.png"), new byte[16]);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (imageManager.getImage("external.png") == null && System.currentTimeMillis() < deadline) Thread.sleep(50);
+            assertNotNull(imageManager.getImage("external.png"));
+        } finally {
+            imageManager.disableIndex();
+        }
+    }
+
+    /**
+     * Test that saved images go to their shard directory, and that flat files are still found and get migrated
+     */
+    @Test
+    void testShardedLayout() throws IOException {
+        Path root = Paths.get(imageManager.getDir());
+        String randomName = imageManager.saveImage(new ByteArrayInputStream(new byte[16]), "png");
+        assertEquals(MediaLayout.shardedPath(root, randomName).toFile().getAbsoluteFile(),
+                imageManager.getImage(randomName).getAbsoluteFile());
+
+        Files.write(root.resolve("legacy.png"), new byte[16]);
+        assertNotNull(imageManager.getImage("legacy.png"));
+        assertEquals(1, MediaMigration.migrate(root));
+        assertFalse(Files.exists(root.resolve("legacy.png")));
+        assertTrue(Files.exists(MediaLayout.shardedPath(root, "legacy.png")));
+        assertNotNull(imageManager.getImage("legacy.png"));
+        assertEquals(2, imageManager.getImageUrls().size());
+        assertTrue(imageManager.getImageUrls().contains(imageManager.getDir()+"legacy.png"));
+    }
+
+    /**
+     * Test that the metadata of the media follows saved and deleted files, and can be listed page by page
+     */
+    @Test
+    void testMediaMetadata() throws InterruptedException {
+        String first = imageManager.saveImage(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)), "png");
+        Thread.sleep(1000); // Upload times are stored to the second
+        String second = imageManager.saveImage(new ByteArrayInputStream(new byte[16]), "jpg");
+
+        List<Media> media = imageManager.getMedia(0, 0);
+        assertEquals(2, media.size());
+        assertEquals(second, media.get(0).getName());
+        assertEquals("image/jpeg", media.get(0).getContentType());
+        Media firstMedia = media.get(1);
+        assertEquals(first, firstMedia.getName());
+        assertEquals(3, firstMedia.getSize());
+        assertEquals("image/png", firstMedia.getContentType());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", firstMedia.getChecksum());
+
+        assertEquals(1, imageManager.getMedia(1, 0).size());
+        assertEquals(first, imageManager.getMedia(1, 1).get(0).getName());
+        assertEquals(0, imageManager.getMedia(1, 2).size());
+
+        imageManager.deleteImage(first);
+        assertEquals(1, imageManager.getMedia(0, 0).size());
+        imageManager.deleteAll();
+        assertEquals(0, imageManager.getMedia(0, 0).size());
+        assertEquals(0, imageManager.getImageUrls().size());
+    }
+
+    /**
+     * Test that files without metadata, in the flat directory or a shard directory, are recorded by the backfill and
+     * linked to identical stored content
+     */
+    @Test
+    void testBackfillMedia() throws IOException {
+        byte[] data = "old picture".getBytes(StandardCharsets.UTF_8);
+        String saved = imageManager.saveImage(new ByteArrayInputStream(data), "png");
+        Path root = Paths.get(imageManager.getDir());
+        Files.write(root.resolve("FLAT0001.png"), data);
+        Path sharded = MediaLayout.shardedPath(root, "SHARD001.png");
+        Files.createDirectories(sharded.getParent());
+        Files.write(sharded, data);
+
+        assertEquals(2, imageManager.backfillMedia());
+        assertEquals(3, imageManager.getMedia(0, 0).size());
+        String checksum = imageManager.getMedia(saved).getChecksum();
+        assertEquals(checksum, imageManager.getMedia("FLAT0001.png").getChecksum());
+        assertEquals(checksum, imageManager.getMedia("SHARD001.png").getChecksum());
+        assertEquals(data.length, imageManager.getMedia("FLAT0001.png").getSize());
+        assertTrue(Files.isSameFile(imageManager.getImage(saved).toPath(), imageManager.getImage("FLAT0001.png").toPath()));
+        assertEquals(0, imageManager.backfillMedia());
+    }
+
+    /**
+     * Test that identical content is stored once, can be saved again by its checksum, and outlives its first name
+     */
+    @Test
+    void testDeduplication() throws IOException {
+        byte[] data = "same picture".getBytes(StandardCharsets.UTF_8);
+        String first = imageManager.saveImage(new ByteArrayInputStream(data), "png");
+        String second = imageManager.saveImage(new ByteArrayInputStream(data), "png");
+        assertNotEquals(first, second);
+        List<Media> media = imageManager.getMedia(0, 0);
+        assertEquals(media.get(0).getChecksum(), media.get(1).getChecksum());
+
+        String third = imageManager.saveImageByChecksum(media.get(0).getChecksum(), "png");
+        assertNotNull(third);
+
+        // The content is stored once, and every name is a link to it
+        Path blobs = Paths.get(imageManager.getDir(), ".blobs");
+        List<Path> stored;
+        try (Stream<Path> paths = Files.walk(blobs)) {
+            stored = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        assertEquals(1, stored.size());
+        assertEquals(media.get(0).getChecksum(), stored.get(0).getFileName().toString());
+        assertEquals(4, Files.getAttribute(stored.get(0), "unix:nlink"));
+        for (String name : new String[] {first, second, third})
+            assertTrue(Files.isSameFile(stored.get(0), imageManager.getImage(name).toPath()));
+        assertNull(imageManager.saveImageByChecksum("0000000000000000000000000000000000000000000000000000000000000000", "png"));
+        assertNull(imageManager.saveImageByChecksum("../../etc", "png"));
+        assertNull(imageManager.saveImageByChecksum(media.get(0).getChecksum(), "/../../../.."));
+        assertNull(imageManager.saveImageByChecksum(media.get(0).getChecksum(), ""));
+        assertNull(imageManager.saveImage(new ByteArrayInputStream(data), "png/../../x"));
+        assertEquals(3, imageManager.getMedia(0, 0).size());
+
+        assertTrue(imageManager.deleteImage(first));
+        assertEquals(3, Files.getAttribute(stored.get(0), "unix:nlink"));
+        assertArrayEquals(data, Files.readAllBytes(imageManager.getImage(second).toPath()));
+        assertArrayEquals(data, Files.readAllBytes(imageManager.getImage(third).toPath()));
+        assertEquals(2, imageManager.getImageUrls().size());
+    }
+
     /**
      * Deleting an image that doesn't exist should return false
      */
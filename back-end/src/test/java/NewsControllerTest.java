@@ -11,6 +11,7 @@ import io.micronaut.http.client.annotation.Client;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import main.java.com.projectBackEnd.Services.News.Hibernate.News;
 import main.java.com.projectBackEnd.Services.News.Hibernate.NewsManager;
@@ -24,14 +25,19 @@ import org.junit.jupiter.api.BeforeEach;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 
 import main.java.com.projectBackEnd.Services.User.Hibernate.UserManager;
 import main.java.com.projectBackEnd.HibernateUtility;
+import main.java.com.projectBackEnd.BlockingExecutorFactory;
+import main.java.com.projectBackEnd.InstrumentedExecutor;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -45,6 +51,10 @@ class NewsControllerTest {
     @Client("/")
     private HttpClient client;
 
+    @Inject
+    @Named(BlockingExecutorFactory.BLOCKING)
+    private InstrumentedExecutor blockingExecutor;
+
     private static NewsManagerInterface newsManager;
     private static String token;
 
@@ -103,6 +113,43 @@ class NewsControllerTest {
     }
 
 
+    /**
+     * Tests that the summaries endpoint lists the news without their content, and that the full article can then be
+     * retrieved by its slug, expects success
+     */
+    @Test
+    void testGetSummariesAndArticle(){
+        addNews(new NewsAddCommand(new Date(34189213L) , false, "Health Alert", "Corona virus pandemics",
+                false, "COVID-19 originated from Wuhan, China", "slug1"),token);
+        addNews(new NewsAddCommand(new Date(34189213L) , false, "Health Alert", "Flu season",
+                true, "Get vaccinated", "slug2"),token);
+        List<Map> summaries = client.toBlocking().retrieve(HttpRequest.GET("/news/summaries"), Argument.listOf(Map.class));
+        assertEquals(2, summaries.size());
+        assertEquals("slug2", summaries.get(0).get("slug"));
+        assertFalse(summaries.get(0).containsKey("content"));
+
+        List<Map> page = client.toBlocking().retrieve(HttpRequest.GET("/news/summaries?limit=1&offset=1"), Argument.listOf(Map.class));
+        assertEquals(1, page.size());
+        assertEquals("slug1", page.get(0).get("slug"));
+
+        News article = client.toBlocking().retrieve(HttpRequest.GET("/news/slug1"), News.class);
+        assertEquals("COVID-19 originated from Wuhan, China", article.getContent());
+    }
+
+
+    /**
+     * Tests that requests are run on the blocking executor, whose metrics account for them, expects success
+     */
+    @Test
+    void testRequestsRunOnBlockingExecutor(){
+        long started = blockingExecutor.getStartedTasks();
+        getAllNews();
+        assertTrue(blockingExecutor.getStartedTasks() > started);
+        assertEquals(0, blockingExecutor.getQueueDepth());
+        assertTrue(blockingExecutor.getMaxWaitMillis() >= blockingExecutor.getAverageWaitMillis());
+    }
+
+
     /**
      * Deletes an existing news item and attempts to retrieve it via the GET request
      */
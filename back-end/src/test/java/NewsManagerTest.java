@@ -190,6 +190,23 @@ class NewsManagerTest {
         }
     }
 
+    /**
+     * Testing that pages of news follow the same order as the full list
+     */
+    @Test
+    void testPagesOfNews() throws DuplicateKeysException, InvalidFieldsException {
+        fillDatabase(getListOfNews());
+        List<News> allNews = newsManager.getAllNews();
+        List<News> firstPage = newsManager.getNews(3, 0);
+        List<News> lastPage = newsManager.getNews(3, 6);
+        assertEquals(3, firstPage.size());
+        assertEquals(1, lastPage.size());
+        for (int i = 0; i < firstPage.size(); ++i)
+            assertEquals(allNews.get(i).getSlug(), firstPage.get(i).getSlug());
+        assertEquals(allNews.get(6).getSlug(), lastPage.get(0).getSlug());
+        assertEquals(0, newsManager.getNews(3, 7).size());
+    }
+
     /**
      * Test that an empty table returns no news
      */
@@ -12,7 +12,9 @@ import main.java.com.projectBackEnd.HibernateUtility;
 
 import javax.persistence.PersistenceException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -256,6 +258,52 @@ class PageManagerTest {
         assertEquals(0, pageManager.getAllPagesOfSite(null).size());
     }
 
+    //Testing PageManagerInterface: updateIndices
+    /**
+     * Test that the indices of several pages of a site are updated together
+     */
+    @Test
+    void testUpdateIndices() throws DuplicateKeysException, InvalidFieldsException {
+        pageManager.addPage(new Page(testSiteA.getSlug(), "Slug0", 10, "TitleA","ContentA"));
+        pageManager.addPage(new Page(testSiteA.getSlug(), "Slug1", 11, "TitleB","ContentB"));
+        pageManager.addPage(new Page(testSiteA.getSlug(), "Slug2", 12, "TitleC","ContentC"));
+        Map<String, Integer> indices = new HashMap<>();
+        indices.put("Slug0", 2);
+        indices.put("Slug1", 1);
+        indices.put("Slug2", 0);
+        assertTrue(pageManager.updateIndices(testSiteA.getSlug(), indices));
+        List<Page> allPagesOfSite = pageManager.getAllPagesOfSite(testSiteA.getSlug());
+        for(int i = 0; i < allPagesOfSite.size(); ++i) {
+            assertEquals(i, allPagesOfSite.get(i).getIndex());
+            assertEquals("Slug"+(2-i), allPagesOfSite.get(i).getSlug());
+        }
+    }
+
+    /**
+     * Test that no index is changed if one of the pages does not exist in the site
+     */
+    @Test
+    void testUpdateIndicesWithUnfoundPage() throws DuplicateKeysException, InvalidFieldsException {
+        pageManager.addPage(new Page(testSiteA.getSlug(), "Slug0", 10, "TitleA","ContentA"));
+        pageManager.addPage(new Page(testSiteB.getSlug(), "Slug1", 11, "TitleB","ContentB"));
+        Map<String, Integer> indices = new HashMap<>();
+        indices.put("Slug0", 0);
+        indices.put("Slug1", 1);
+        assertFalse(pageManager.updateIndices(testSiteA.getSlug(), indices));
+        assertEquals(10, pageManager.getPageBySiteAndSlug(testSiteA.getSlug(), "Slug0").getIndex());
+        assertEquals(11, pageManager.getPageBySiteAndSlug(testSiteB.getSlug(), "Slug1").getIndex());
+    }
+
+    /**
+     * Test that null slugs are rejected
+     */
+    @Test
+    void testUpdateIndicesWithNullSlug() {
+        Map<String, Integer> indices = new HashMap<>();
+        indices.put(null, 0);
+        assertThrows(InvalidFieldsException.class, () -> pageManager.updateIndices(testSiteA.getSlug(), indices));
+    }
+
     //Testing PageManagerInterface: deleteAll
     /**
      * Testing a database can have deleteAll run on it, even if it is empty
@@ -13,6 +13,11 @@ import java.security.NoSuchAlgorithmException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import static org.junit.Assert.*;
 import java.math.BigInteger;
 
@@ -20,6 +25,7 @@ import main.java.com.projectBackEnd.HibernateUtility;
 import main.java.com.projectBackEnd.EntityManager;
 
 class PasswordResetTest{
+	private static final List<String> sent = new ArrayList<>();		// Recipients and content of the stubbed emails
 	private static ConnectionLeakUtil connectionLeakUtil = null;
 	private static UserManagerInterface userManager = null;
 	private static PasswordResetInterface resetManager = null;
@@ -32,7 +38,12 @@ class PasswordResetTest{
 
 		HibernateUtility.setResource("testhibernate.cfg.xml");
 		userManager = UserManager.getUserManager();
-		resetManager = PasswordReset.getPasswordResetManager();
+		resetManager = new PasswordReset(new MailQueue((to, title, content) -> {
+			synchronized (sent) {
+				sent.add(to + " " + content);
+				sent.notifyAll();
+			}
+		}, 10, 1, 1, 10));
 		linkManager = ResetLinkManager.getResetLinkManager();
 		connectionLeakUtil = new ConnectionLeakUtil();
 
@@ -65,7 +76,10 @@ class PasswordResetTest{
 	*/
 	@Test
     	@Timeout(15)
-	void testSendPasswordResetLink(){
+	void testSendPasswordResetLink() throws InterruptedException {
+		synchronized (sent) {
+			sent.clear();
+		}
 		try{
 			resetManager.sendPasswordResetLink("user@gmail.com");
 		}
@@ -73,6 +87,13 @@ class PasswordResetTest{
 			fail();
 			
 		}
+		synchronized (sent) {
+			while (sent.isEmpty()) sent.wait(1000);
+			assertEquals(1, sent.size());
+			assertTrue(sent.get(0).startsWith("user@gmail.com "));
+		}
+		String token = sent.get(0).split("\n")[1];
+		assertEquals("user@gmail.com", linkManager.getEmail(token));
 	}
 	/**
 	* check that sending a token for a incorrect email throws EmailNotExistException
@@ -158,4 +179,52 @@ class PasswordResetTest{
 
 	}
 
+	/**
+	* test that the mail queue retries a failed delivery with a stub transport, and rejects messages once full
+	*/
+	@Test
+	@Timeout(15)
+	void testMailQueueRetries() throws InterruptedException {
+
+		List<String> delivered = new ArrayList<>();
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger attempts = new AtomicInteger();
+		MailQueue queue = new MailQueue((to, title, content) -> {
+			if(attempts.incrementAndGet() < 3) throw new MessagingException("stub failure");
+			delivered.add(to);
+			done.countDown();
+		}, 1, 1, 5, 10);
+
+		assertTrue(queue.enqueue("user@gmail.com", "title", "content"));
+		assertFalse(queue.enqueue("other@gmail.com", "title", "content"));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(1, delivered.size());
+		assertEquals(2, queue.getRetried());
+		assertEquals(1, queue.getSent());
+		assertEquals(0, queue.getFailed());
+	}
+
+	/**
+	 * Test that a message to an invalid address is dropped without being retried
+	 */
+	@Test
+	@Timeout(15)
+	void testMailQueueDropsPermanentFailures() throws InterruptedException {
+
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+		MailQueue queue = new MailQueue((to, title, content) -> {
+			attempts.incrementAndGet();
+			done.countDown();
+			throw new SendFailedException("invalid address");
+		}, 1, 1, 5, 10);
+
+		assertTrue(queue.enqueue("not an address", "title", "content"));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		while (queue.getPending() > 0) Thread.sleep(10);
+		assertEquals(1, attempts.get());
+		assertEquals(0, queue.getRetried());
+		assertEquals(1, queue.getFailed());
+	}
+
 }
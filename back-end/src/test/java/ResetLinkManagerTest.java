@@ -123,6 +123,82 @@ class ResetLinkManagerTest {
             assertNull(linkManager.getEmail("email@email.com"));
 	}
 
+    /**
+     * Tests that a link can only be consumed once, and that consuming it returns its email, expects success
+     */
+    @Test
+    void testConsume(){
+        fill();
+        try {
+            String a = linkManager.create("test@test.com");
+            assertTrue(linkManager.exist(a));
+            assertEquals("test@test.com", linkManager.consume(a));
+            assertFalse(linkManager.exist(a));
+            assertNull(linkManager.consume(a));
+        } catch (EmailNotExistException e){
+            fail();
+        }
+        assertNull(linkManager.consume(""));
+        assertNull(linkManager.consume(null));
+    }
+
+    /**
+     * Tests that links are created with an expiry in the future, and that the reaper keeps them while counting
+     * the outstanding links, expects success
+     */
+    @Test
+    void testReaperKeepsValidLinks(){
+        fill();
+        try {
+            linkManager.create("test@test.com");
+            linkManager.create("test@test.com");
+        } catch (EmailNotExistException e){
+            fail();
+        }
+        Link link = (Link) ((EntityManager) linkManager).getAll().get(0);
+        assertFalse(link.isExpired());
+        assertTrue(link.getExpiry().after(link.getCreated()));
+
+        ResetLinkReaper reaper = new ResetLinkReaper(1, 10);
+        assertEquals(0, reaper.purgeExpiredLinks());
+        assertEquals(2, reaper.getOutstandingLinks());
+        assertEquals(2, linkManager.countLinks());
+        assertEquals(1, reaper.getRuns());
+    }
+
+    /**
+     * Tests that expired links can no longer be used and are purged by the reaper, while valid ones are kept,
+     * expects success
+     */
+    @Test
+    void testExpiredLinksRejectedAndPurged() throws InterruptedException {
+        fill();
+        Link link1 = new Link("test@test.com", 1);
+        Link link2 = new Link("test@test.com", 1);
+        ((EntityManager)linkManager).insertTuple(link1);
+        ((EntityManager)linkManager).insertTuple(link2);
+        String expired1 = link1.getToken();
+        String expired2 = link2.getToken();
+        String valid = null;
+        try {
+            valid = linkManager.create("test@test.com");
+        } catch (EmailNotExistException e){
+            fail();
+        }
+        Thread.sleep(1500);
+
+        assertNull(linkManager.getEmail(expired1));
+        assertFalse(linkManager.exist(expired1));
+        assertNull(linkManager.consume(expired2));
+        assertEquals("test@test.com", linkManager.getEmail(valid));
+
+        ResetLinkReaper reaper = new ResetLinkReaper(10, 10);
+        assertEquals(1, reaper.purgeExpiredLinks());
+        assertEquals(1, reaper.getOutstandingLinks());
+        assertEquals(1, linkManager.countLinks());
+        assertTrue(linkManager.exist(valid));
+    }
+
     /**
      * Attempts to create a token for an email which does not exist, expects and exception to be thrown
      */
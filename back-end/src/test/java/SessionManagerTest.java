@@ -5,9 +5,17 @@ import main.java.com.projectBackEnd.Services.Session.Session;
 import main.java.com.projectBackEnd.Services.Session.SessionManager;
 import main.java.com.projectBackEnd.Services.Session.SessionManagerInterface;
 import main.java.com.projectBackEnd.Services.Session.NoSessionException;
+import main.java.com.projectBackEnd.Services.Session.SessionReaper;
+import main.java.com.projectBackEnd.Services.ResetLinks.Link;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -88,6 +96,43 @@ class SessionManagerTest {
 
 	}
 
+	/**
+	 * Tests that a session which has already been verified is no longer accepted once it has been terminated,
+	 * expects success
+	 */
+	@Test
+	void testVerifySessionAfterTerminate() {
+		String token = sessionManager.getNewSession("1",100);
+		assertTrue(sessionManager.verifySession(token));
+		assertTrue(sessionManager.verifySession(token));
+		sessionManager.terminateSession(token);
+		assertFalse(sessionManager.verifySession(token));
+	}
+
+	/**
+	 * Tests that a session which has already been verified is no longer accepted once all sessions are deleted,
+	 * expects success
+	 */
+	@Test
+	void testVerifySessionAfterDeleteAll() {
+		String token = sessionManager.getNewSession("1",100);
+		assertTrue(sessionManager.verifySession(token));
+		((SessionManager)sessionManager).deleteAll();
+		assertFalse(sessionManager.verifySession(token));
+	}
+
+	/**
+	 * Tests that a verified session is still rejected once its timeout is reached, expects success
+	 * @throws InterruptedException This exception is not expected but may be thrown
+	 */
+	@Test
+	void testVerifiedSessionTimeout() throws InterruptedException {
+		String token = sessionManager.getNewSession("1",2);
+		assertTrue(sessionManager.verifySession(token));
+		Thread.sleep(2005);
+		assertFalse(sessionManager.verifySession(token));
+	}
+
 	/**
 	 * Tests that the manager correctly times out after the timeout threshold is reached, expects success
 	 * @throws InterruptedException This exception is not expected but may be thrown
@@ -99,11 +144,56 @@ class SessionManagerTest {
 		List<Session> sessions = (List<Session>)((EntityManager) sessionManager).getAll();
 		assertEquals(1,sessions.stream().filter(s->(s.getToken().equals(token))).count());
 		Thread.sleep(2005);
-		sessionManager.verifySession(token);
+		assertFalse(sessionManager.verifySession(token));
+		sessionManager.deleteExpiredSessions(10);
 		sessions = (List<Session>)((EntityManager) sessionManager).getAll();
 		assertEquals(0,sessions.stream().filter(s->(s.getToken().equals(token))).count());
 	}
 
+	/**
+	 * Tests that the reaper removes every timed out session in batches while keeping open sessions, and records
+	 * how many rows it purged, expects success
+	 */
+	@Test
+	void testReaperPurgesExpiredSessions() {
+		fillDatabase(getTestSessions());
+		for(int i = 0; i < 5; ++i) sessionManager.getNewSession("1",0);
+		SessionReaper reaper = new SessionReaper(2, 10);
+		assertEquals(5, reaper.purgeExpiredSessions());
+		assertEquals(5, reaper.getLastPurged());
+		assertEquals(3, ((EntityManager) sessionManager).getAll().size());
+		assertEquals(0, reaper.purgeExpiredSessions());
+		assertEquals(2, reaper.getRuns());
+		assertEquals(5, reaper.getTotalPurged());
+	}
+
+
+	/**
+	 * Tests that sessions are served from a connection pool whose statistics are available, expects success
+	 */
+	@Test
+	void testConnectionPoolStats() {
+		sessionManager.getNewSession("1",100);
+		HikariPoolMXBean pool = HibernateUtility.getPoolStats();
+		assertNotNull(pool);
+		assertTrue(pool.getTotalConnections() > 0);
+		assertEquals(0, pool.getActiveConnections());
+	}
+
+	/**
+	 * Tests that the session factory is built once for every entity, with the time of each boot phase recorded, and
+	 * that registering a known entity again does not rebuild it, expects success
+	 */
+	@Test
+	void testSingleBootstrap() {
+		sessionManager.getNewSession("1",100);
+		Map<String, Long> timings = HibernateUtility.getBootTimings();
+		assertEquals(Arrays.asList("scan", "configure", "build"), new ArrayList<>(timings.keySet()));
+		HibernateUtility.addAnnotation(Session.class);
+		HibernateUtility.addAnnotation(Link.class);
+		assertSame(timings, HibernateUtility.getBootTimings());
+	}
+
 
 	/**
 	 * Tests that the manager is able to terminate an existing session, expects success
@@ -183,6 +273,24 @@ class SessionManagerTest {
 		assertThrows(NoSessionException.class,() -> {sessionManager.getEmail(null);});
 	}
 
+	/**
+	 * Test that generated tokens have the requested length, only use the lexicon, and do not repeat
+	 */
+	@Test
+	void testGeneratedTokens() {
+		String lexicon = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz";
+		Set<String> tokens = new HashSet<>();
+		for (int i = 0; i < 10000; ++i) {
+			String token = TokenGenerator.generateToken(SessionManager.tokenLength, lexicon);
+			assertEquals(SessionManager.tokenLength, token.length());
+			for (char c : token.toCharArray()) assertTrue(lexicon.indexOf(c) >= 0);
+			tokens.add(token);
+		}
+		assertEquals(10000, tokens.size());
+		assertEquals(200, TokenGenerator.generateToken(200, "AB").length());
+		assertThrows(IllegalArgumentException.class, () -> TokenGenerator.generateToken(8, ""));
+	}
+
 
 	/**
 	 * Quality of life method to create multiple sessions for testing purposes
@@ -425,6 +425,29 @@ class SiteManagerTest {
         assertEquals("f", found.getName());
     }
 
+    /**
+     * Test that repeated lookups of a site are answered from memory, and that an update is seen straight away
+     */
+    @Test
+     void testSiteCache() throws DuplicateKeysException, InvalidFieldsException {
+        siteManager.addSite(new Site("cached-slug", "name"));
+        SiteManager manager = (SiteManager) siteManager;
+        long misses = manager.getCacheMisses();
+        Site found = siteManager.getSiteBySlug("cached-slug");
+        long hits = manager.getCacheHits();
+        assertEquals(misses + 1, manager.getCacheMisses());
+        assertEquals("name", siteManager.getSiteBySlug("cached-slug").getName());
+        assertEquals("name", siteManager.getByPrimaryKey(found.getPrimaryKey()).getName());
+        assertEquals(hits + 2, manager.getCacheHits());
+
+        found.setName("changed locally");
+        assertEquals("name", siteManager.getSiteBySlug("cached-slug").getName());
+        siteManager.update(new Site(found.getPrimaryKey(), "cached-slug", "new name"));
+        assertEquals("new name", siteManager.getSiteBySlug("cached-slug").getName());
+        siteManager.delete(found.getPrimaryKey());
+        assertNull(siteManager.getSiteBySlug("cached-slug"));
+    }
+
     /**
      * Test searching for a slug that doesn't exist in the table.
      */